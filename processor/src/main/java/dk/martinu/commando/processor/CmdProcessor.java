@@ -0,0 +1,384 @@
+package dk.martinu.commando.processor;
+
+import org.jetbrains.annotations.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.*;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Generates a descriptor class for each class annotated with
+ * {@code dk.martinu.commando.Cmd}. Aliases, options and the command class
+ * itself are validated when compiling, and the generated
+ * {@code create()} method passes the validated values and a method
+ * reference to the command's constructor or static instance method to
+ * {@code CommandInfo.precompiled}.
+ * <p>
+ * If the {@value #PROVIDER_OPTION} option is set to a fully qualified class
+ * name, a {@code CommandProvider} of all annotated classes in the compilation
+ * is also generated with that name. The provider does not load any command
+ * class until its command is loaded.
+ * <p>
+ * Annotations are read by name, so this processor does not depend on the
+ * {@code dk.martinu.commando} module.
+ */
+@SupportedAnnotationTypes(CmdProcessor.CMD)
+@SupportedOptions(CmdProcessor.PROVIDER_OPTION)
+public class CmdProcessor extends AbstractProcessor {
+
+    public static final String PROVIDER_OPTION = "commando.provider";
+
+    static final String CMD = "dk.martinu.commando.Cmd";
+    static final String COMMAND = "dk.martinu.commando.Command";
+    static final String STATIC_COMMAND = "dk.martinu.commando.StaticCommand";
+    static final String PACKAGE = "dk.martinu.commando";
+
+    /**
+     * Returns {@code true} if {@code name} is not a valid alias or option
+     * name. Must be kept consistent with {@code Util.isNameInvalid}.
+     */
+    @Contract(pure = true)
+    static boolean isNameInvalid(@NotNull String name) {
+        if (name.isEmpty()) {
+            return true;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'A' || c > 'Z') && (c < 'a' || c > 'z') && c != '_') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    private static String descriptorName(@NotNull TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName()).append("Descriptor");
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement outer) {
+            sb.insert(0, '_').insert(0, outer.getSimpleName());
+            enclosing = outer.getEnclosingElement();
+        }
+        return sb.toString();
+    }
+
+    @Nullable
+    private static AnnotationValue getValue(@NotNull Map<? extends ExecutableElement, ? extends AnnotationValue> values,
+            @NotNull String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // descriptors written in all rounds, for the generated provider
+    @NotNull
+    private final List<Descriptor> descriptors = new ArrayList<>();
+    private boolean providerWritten = false;
+
+    @Contract(pure = true)
+    @NotNull
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(@NotNull Set<? extends TypeElement> annotations, @NotNull RoundEnvironment roundEnv) {
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement cmd = elements.getTypeElement(CMD);
+        if (cmd == null || roundEnv.processingOver()) {
+            return false;
+        }
+        Set<? extends Element> annotated = roundEnv.getElementsAnnotatedWith(cmd);
+
+        // write the provider in the first round without new commands, which
+        // is before the last round, so the provider is compiled with them
+        if (annotated.isEmpty()) {
+            String provider = processingEnv.getOptions().get(PROVIDER_OPTION);
+            if (provider != null && !providerWritten && !descriptors.isEmpty()) {
+                providerWritten = true;
+                try {
+                    writeProvider(provider);
+                }
+                catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "could not write provider: " + e.getMessage());
+                }
+            }
+            return true;
+        }
+
+        for (Element element : annotated) {
+            AnnotationMirror mirror = null;
+            for (AnnotationMirror am : element.getAnnotationMirrors()) {
+                if (am.getAnnotationType().asElement().equals(cmd)) {
+                    mirror = am;
+                    break;
+                }
+            }
+            if (mirror == null) {
+                continue;
+            }
+            try {
+                Descriptor descriptor = describe((TypeElement) element, mirror);
+                write(descriptor);
+                descriptors.add(descriptor);
+            }
+            catch (InvalidCommandException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element, mirror);
+            }
+            catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "could not write descriptor: " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Validates an annotated class and its annotation, and returns the values
+     * of its descriptor.
+     */
+    @NotNull
+    private Descriptor describe(@NotNull TypeElement type, @NotNull AnnotationMirror mirror)
+            throws InvalidCommandException {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+
+        // command class
+        if (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) {
+            throw new InvalidCommandException("@Cmd can only be applied to classes");
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new InvalidCommandException("command class is abstract");
+        }
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+                throw new InvalidCommandException("command class is not public");
+            }
+            if (e.getEnclosingElement() instanceof TypeElement && !e.getModifiers().contains(Modifier.STATIC)) {
+                throw new InvalidCommandException("nested command class is not static");
+            }
+        }
+        TypeMirror command = types.erasure(elements.getTypeElement(COMMAND).asType());
+        TypeMirror staticCommand = types.erasure(elements.getTypeElement(STATIC_COMMAND).asType());
+        if (!types.isAssignable(type.asType(), command)) {
+            throw new InvalidCommandException("command class does not implement " + COMMAND);
+        }
+        String factory;
+        if (types.isAssignable(type.asType(), staticCommand)) {
+            factory = null;
+            for (ExecutableElement m : ElementFilter.methodsIn(type.getEnclosedElements())) {
+                if (m.getSimpleName().contentEquals("getInstance") && m.getParameters().isEmpty()
+                        && m.getModifiers().containsAll(Set.of(Modifier.PUBLIC, Modifier.STATIC))
+                        && types.isAssignable(m.getReturnType(), command)) {
+                    factory = "getInstance";
+                    break;
+                }
+            }
+            if (factory == null) {
+                throw new InvalidCommandException("missing public static instance method getInstance()");
+            }
+        }
+        else {
+            factory = null;
+            for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+                if (c.getParameters().isEmpty() && c.getModifiers().contains(Modifier.PUBLIC)) {
+                    factory = "new";
+                    break;
+                }
+            }
+            if (factory == null) {
+                throw new InvalidCommandException("missing public no-arg constructor");
+            }
+        }
+
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values = elements.getElementValuesWithDefaults(mirror);
+
+        // aliases
+        List<String> aliases = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        List<? extends AnnotationValue> aliasValues =
+                (List<? extends AnnotationValue>) Objects.requireNonNull(getValue(values, "aliases")).getValue();
+        for (AnnotationValue value : aliasValues) {
+            String alias = (String) value.getValue();
+            if (isNameInvalid(alias)) {
+                throw new InvalidCommandException("alias is invalid {" + alias + "}");
+            }
+            if (aliases.contains(alias)) {
+                throw new InvalidCommandException("duplicate alias {" + alias + "}");
+            }
+            aliases.add(alias);
+        }
+        if (aliases.isEmpty()) {
+            throw new InvalidCommandException("aliases array is empty");
+        }
+
+        // options
+        List<OptionDescriptor> options = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        @SuppressWarnings("unchecked")
+        List<? extends AnnotationValue> optionValues =
+                (List<? extends AnnotationValue>) Objects.requireNonNull(getValue(values, "options")).getValue();
+        for (AnnotationValue value : optionValues) {
+            Map<? extends ExecutableElement, ? extends AnnotationValue> option =
+                    elements.getElementValuesWithDefaults((AnnotationMirror) value.getValue());
+            String name = (String) Objects.requireNonNull(getValue(option, "name")).getValue();
+            if (isNameInvalid(name)) {
+                throw new InvalidCommandException("option name is invalid {" + name + "}");
+            }
+            if (!names.add(name.toLowerCase(Locale.ROOT))) {
+                throw new InvalidCommandException("duplicate option {" + name + "}");
+            }
+            // a missing description is null, as for options that are created directly
+            String description = (String) Objects.requireNonNull(getValue(option, "description")).getValue();
+            options.add(new OptionDescriptor(name,
+                    ((VariableElement) Objects.requireNonNull(getValue(option, "type")).getValue()).getSimpleName().toString(),
+                    (Boolean) Objects.requireNonNull(getValue(option, "required")).getValue(),
+                    description.isEmpty() ? null : description));
+        }
+
+        // args
+        String args = ((VariableElement) Objects.requireNonNull(getValue(values, "args")).getValue()).getSimpleName().toString();
+
+        return new Descriptor(type, elements.getBinaryName(type).toString(),
+                elements.getPackageOf(type).getQualifiedName().toString(),
+                descriptorName(type), factory, aliases, options, args);
+    }
+
+    private void write(@NotNull Descriptor descriptor) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        String pkg = descriptor.pkg;
+        String qualifiedName = pkg.isEmpty() ? descriptor.name : pkg + '.' + descriptor.name;
+        String cls = descriptor.type.getQualifiedName().toString();
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(qualifiedName, descriptor.type).openWriter())) {
+            out.println("// generated from @Cmd on " + cls + "; do not edit");
+            if (!pkg.isEmpty()) {
+                out.println("package " + pkg + ";");
+                out.println();
+            }
+            out.println("public final class " + descriptor.name + " {");
+            out.println();
+            out.println("    public static " + PACKAGE + ".CommandInfo create() {");
+            out.println("        return " + PACKAGE + ".CommandInfo.precompiled(" + cls + ".class, " + cls + "::" + descriptor.factory + ",");
+
+            StringJoiner aliases = new StringJoiner(", ", "                new String[] {", "},");
+            descriptor.aliases.forEach(alias -> aliases.add(elements.getConstantExpression(alias)));
+            out.println(aliases);
+
+            out.print("                new " + PACKAGE + ".OptionInfo[] {");
+            for (int i = 0; i < descriptor.options.size(); i++) {
+                OptionDescriptor option = descriptor.options.get(i);
+                out.println(i == 0 ? "" : ",");
+                out.print("                        new " + PACKAGE + ".OptionInfo("
+                        + elements.getConstantExpression(option.name) + ", "
+                        + PACKAGE + ".Option.Type." + option.type + ", "
+                        + option.required + ", "
+                        + (option.description != null ? elements.getConstantExpression(option.description) : "null")
+                        + ")");
+            }
+            out.println(descriptor.options.isEmpty() ? "}," : "\n                },");
+
+            out.println("                " + PACKAGE + ".ArgsInfo." + descriptor.args + ");");
+            out.println("    }");
+            out.println();
+            out.println("    private " + descriptor.name + "() { }");
+            out.println("}");
+        }
+    }
+
+    private void writeProvider(@NotNull String qualifiedName) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        int dot = qualifiedName.lastIndexOf('.');
+        String pkg = dot != -1 ? qualifiedName.substring(0, dot) : "";
+        String name = qualifiedName.substring(dot + 1);
+        List<Descriptor> list = new ArrayList<>(descriptors.size());
+        for (Descriptor descriptor : descriptors) {
+            if (descriptor.pkg.isEmpty() && !pkg.isEmpty()) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "command in unnamed package cannot be provided by " + qualifiedName, descriptor.type);
+            }
+            else {
+                list.add(descriptor);
+            }
+        }
+        list.sort(Comparator.comparing(Descriptor::binaryName));
+        Element[] originating = list.stream().map(Descriptor::type).toArray(Element[]::new);
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(qualifiedName, originating).openWriter())) {
+            out.println("// generated from @Cmd classes; do not edit");
+            if (!pkg.isEmpty()) {
+                out.println("package " + pkg + ";");
+                out.println();
+            }
+            out.println("public final class " + name + " implements " + PACKAGE + ".CommandProvider {");
+            out.println();
+            out.println("    private static final String[] CLASS_NAMES = {");
+            for (Descriptor descriptor : list) {
+                out.println("            " + elements.getConstantExpression(descriptor.binaryName) + ",");
+            }
+            out.println("    };");
+            out.println("    private static final String[][] ALIASES = {");
+            for (Descriptor descriptor : list) {
+                StringJoiner aliases = new StringJoiner(", ", "            {", "},");
+                descriptor.aliases.forEach(alias -> aliases.add(elements.getConstantExpression(alias)));
+                out.println(aliases);
+            }
+            out.println("    };");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String[] getAliases(int index) {");
+            out.println("        return ALIASES[index].clone();");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getClassName(int index) {");
+            out.println("        return CLASS_NAMES[index];");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int getCount() {");
+            out.println("        return CLASS_NAMES.length;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + PACKAGE + ".CommandInfo load(int index) {");
+            out.println("        return switch (index) {");
+            for (int i = 0; i < list.size(); i++) {
+                Descriptor descriptor = list.get(i);
+                String descriptorName = descriptor.pkg.isEmpty() ? descriptor.name : descriptor.pkg + '.' + descriptor.name;
+                out.println("            case " + i + " -> " + descriptorName + ".create();");
+            }
+            out.println("            default -> throw new IndexOutOfBoundsException(index);");
+            out.println("        };");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private record Descriptor(@NotNull TypeElement type, @NotNull String binaryName, @NotNull String pkg, @NotNull String name,
+            @NotNull String factory, @NotNull List<String> aliases, @NotNull List<OptionDescriptor> options,
+            @NotNull String args) { }
+
+    private record OptionDescriptor(@NotNull String name, @NotNull String type, boolean required,
+            @Nullable String description) { }
+
+    private static final class InvalidCommandException extends Exception {
+
+        InvalidCommandException(@NotNull String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+module dk.martinu.commando.processor {
+
+    requires static org.jetbrains.annotations;
+    requires java.compiler;
+
+    provides javax.annotation.processing.Processor with dk.martinu.commando.processor.CmdProcessor;
+}
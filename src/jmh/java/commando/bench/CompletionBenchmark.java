@@ -0,0 +1,81 @@
+package commando.bench;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks completing command aliases and option names in large
+ * registries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompletionBenchmark {
+
+    /**
+     * Number of aliases in the registry.
+     */
+    @Param({"1024", "100000"})
+    public int commands;
+
+    private AbstractCliEngine engine;
+    private String[] prefixes;
+
+    @Setup
+    public void setup() {
+        engine = new NullEngine();
+        String[] aliases = Corpus.aliases(commands);
+        // register all aliases in a single update
+        engine.addCommands(new CommandProvider() {
+            @NotNull
+            @Override
+            public String[] getAliases(int index) {
+                return new String[] {aliases[index]};
+            }
+
+            @NotNull
+            @Override
+            public String getClassName(int index) {
+                return Corpus.NoopCommand.class.getName();
+            }
+
+            @Override
+            public int getCount() {
+                return aliases.length;
+            }
+
+            @NotNull
+            @Override
+            public CommandInfo load(int index) {
+                return Corpus.newCommandInfo(getAliases(index));
+            }
+        });
+        prefixes = new String[256];
+        for (int i = 0; i < prefixes.length; i++) {
+            String alias = aliases[i * (aliases.length / prefixes.length)];
+            prefixes[i] = alias.substring(0, Math.min(alias.length(), 3));
+        }
+    }
+
+    /**
+     * Completes command names from short prefixes.
+     */
+    @Benchmark
+    public void completeAlias(Blackhole blackhole) {
+        for (String prefix : prefixes) {
+            blackhole.consume(engine.complete(prefix).commonPrefix());
+        }
+    }
+
+    @Benchmark
+    public Completion completeOption() {
+        return engine.complete("list -page:1 -s");
+    }
+}
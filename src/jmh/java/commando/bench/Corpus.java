@@ -0,0 +1,102 @@
+package commando.bench;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Line and alias corpora shared by the benchmarks. The corpora are read from
+ * resource files in this package.
+ */
+public final class Corpus {
+
+    /**
+     * Returns the argument part of each line in the line corpus, i.e. the
+     * text after the command name, or an empty string if the line has no
+     * arguments.
+     */
+    @NotNull
+    public static String[] args() {
+        return lines().stream()
+                .map(line -> {
+                    int index = line.indexOf(' ');
+                    return index != -1 ? line.substring(index + 1) : "";
+                })
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Returns {@code count} distinct aliases. The aliases in the alias corpus
+     * are used first, followed by aliases with numeric suffixes.
+     */
+    @NotNull
+    public static String[] aliases(int count) {
+        List<String> base = read("aliases.txt");
+        String[] aliases = new String[count];
+        for (int i = 0; i < count; i++) {
+            String alias = base.get(i % base.size());
+            aliases[i] = i < base.size() ? alias : alias + (i / base.size());
+        }
+        return aliases;
+    }
+
+    /**
+     * Returns the lines of the line corpus.
+     */
+    @NotNull
+    public static List<String> lines() {
+        return read("lines.txt");
+    }
+
+    /**
+     * Returns the arguments of a long line, as found in generated scripts:
+     * 192 options with quoted, unquoted and no values, followed by free
+     * arguments.
+     */
+    @NotNull
+    public static String longLine() {
+        StringBuilder sb = new StringBuilder(8192);
+        for (int i = 0; i < 64; i++) {
+            sb.append("-option_").append(i).append(":\"a quoted value with \\\"escaped\\\" quotes\" ");
+            sb.append("-count_").append(i).append(":12345 ");
+            sb.append("-flag_").append(i).append(' ');
+        }
+        return sb.append("free arguments at the end of the line").toString();
+    }
+
+    /**
+     * Returns a new command info for {@link NoopCommand} with the specified
+     * aliases and options.
+     */
+    @NotNull
+    public static CommandInfo newCommandInfo(@NotNull String[] aliases, @NotNull OptionInfo... options) {
+        return new CommandInfo(NoopCommand.class, aliases, options, ArgsInfo.OPTIONAL);
+    }
+
+    @NotNull
+    private static List<String> read(@NotNull String name) {
+        InputStream in = Corpus.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalStateException("missing corpus " + name);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .toList();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Corpus() { }
+
+    public static final class NoopCommand implements Command {
+
+        @Override
+        public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) { }
+    }
+}
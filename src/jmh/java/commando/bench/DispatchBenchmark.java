@@ -0,0 +1,81 @@
+package commando.bench;
+
+import dk.martinu.commando.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the command registry of {@link AbstractCliEngine}, which is
+ * accessed for every line the engine dispatches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    /**
+     * Number of commands in the registry.
+     */
+    @Param({"16", "1024"})
+    public int commands;
+
+    private AbstractCliEngine engine;
+    private String[] aliases;
+    private CommandInfo lastInfo;
+
+    @Setup
+    public void setup() {
+        engine = new NullEngine();
+        aliases = Corpus.aliases(commands);
+        for (String alias : aliases) {
+            lastInfo = Corpus.newCommandInfo(new String[] {alias});
+            engine.addCommand(lastInfo);
+        }
+    }
+
+    /**
+     * Looks up every alias in the registry.
+     */
+    @Benchmark
+    public void getCommand(Blackhole blackhole) {
+        for (String alias : aliases) {
+            blackhole.consume(engine.getCommand(alias));
+        }
+    }
+
+    @Benchmark
+    public boolean hasCommand() {
+        return engine.hasCommand(lastInfo);
+    }
+
+    @Benchmark
+    public Object getCommandEntries() {
+        return engine.getCommandEntries();
+    }
+
+    /**
+     * Looks up aliases while another thread keeps registering and removing a
+     * command.
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void contendedGetCommand(Blackhole blackhole) {
+        for (String alias : aliases) {
+            blackhole.consume(engine.getCommand(alias));
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedAddRemove() {
+        engine.addCommand(Corpus.newCommandInfo(new String[] {"contended"}));
+        engine.removeCommand("contended");
+    }
+}
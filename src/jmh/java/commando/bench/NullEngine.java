@@ -0,0 +1,29 @@
+package commando.bench;
+
+import dk.martinu.commando.AbstractCliEngine;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Scanner;
+
+/**
+ * An engine without input that discards its output.
+ */
+final class NullEngine extends AbstractCliEngine {
+
+    private final PrintWriter out = new PrintWriter(Writer.nullWriter());
+
+    NullEngine() {
+        super(new Scanner(""), true);
+    }
+
+    @Override
+    protected void freeResources() { }
+
+    @NotNull
+    @Override
+    protected PrintWriter out() {
+        return out;
+    }
+}
@@ -0,0 +1,55 @@
+package commando.bench;
+
+import dk.martinu.commando.OrderedSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderedSetBenchmark {
+
+    @Param({"3", "16", "256"})
+    public int size;
+
+    private String[] source;
+    private OrderedSet<String> set;
+    private List<String> all;
+    private String last;
+    private String missing;
+
+    @Setup
+    public void setup() {
+        source = Corpus.aliases(size);
+        set = OrderedSet.of(source);
+        all = List.of(source);
+        // copies, so equals is used rather than identity
+        last = new String(source[size - 1]);
+        missing = "missing";
+    }
+
+    @Benchmark
+    public OrderedSet<String> of() {
+        return OrderedSet.of(source);
+    }
+
+    @Benchmark
+    public boolean containsLast() {
+        return set.contains(last);
+    }
+
+    @Benchmark
+    public boolean containsMissing() {
+        return set.contains(missing);
+    }
+
+    @Benchmark
+    public boolean containsAll() {
+        return set.containsAll(all);
+    }
+}
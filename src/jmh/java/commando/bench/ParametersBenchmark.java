@@ -0,0 +1,45 @@
+package commando.bench;
+
+import dk.martinu.commando.OptionException;
+import dk.martinu.commando.Parameters;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParametersBenchmark {
+
+    private String[] args;
+    private String longLine;
+
+    @Setup
+    public void setup() {
+        args = Corpus.args();
+        longLine = Corpus.longLine();
+    }
+
+    /**
+     * Parses the arguments of every line in the corpus.
+     */
+    @Benchmark
+    public void from(Blackhole blackhole) throws OptionException {
+        for (String arg : args) {
+            blackhole.consume(Parameters.from(arg));
+        }
+    }
+
+    /**
+     * Parses a single long line with many options and quoted values, as found
+     * in generated scripts.
+     */
+    @Benchmark
+    public Parameters fromLongLine() throws OptionException {
+        return Parameters.from(longLine);
+    }
+}
@@ -0,0 +1,61 @@
+package commando.bench;
+
+import dk.martinu.commando.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks registering and removing commands one at a time, as an
+ * application does when it adds its commands individually.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+
+    /**
+     * Number of commands to register.
+     */
+    @Param({"1000", "20000"})
+    public int commands;
+
+    private CommandInfo[] infos;
+
+    @Setup
+    public void setup() {
+        String[] aliases = Corpus.aliases(commands);
+        infos = new CommandInfo[aliases.length];
+        for (int i = 0; i < aliases.length; i++) {
+            infos[i] = Corpus.newCommandInfo(new String[] {aliases[i], "c" + i});
+        }
+    }
+
+    /**
+     * Registers each command in its own update.
+     */
+    @Benchmark
+    public CommandRegistry put() {
+        CommandRegistry registry = new CommandRegistry();
+        for (CommandInfo info : infos) {
+            registry.put(info);
+        }
+        return registry;
+    }
+
+    /**
+     * Registers each command in its own update and then removes every
+     * second alias.
+     */
+    @Benchmark
+    public CommandRegistry putAndRemove() {
+        CommandRegistry registry = put();
+        for (int i = 0; i < infos.length; i += 2) {
+            registry.remove("c" + i);
+        }
+        return registry;
+    }
+}
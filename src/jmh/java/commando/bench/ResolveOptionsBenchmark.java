@@ -0,0 +1,74 @@
+package commando.bench;
+
+import dk.martinu.commando.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolveOptionsBenchmark {
+
+    /**
+     * Number of options declared by the command.
+     */
+    @Param({"4", "32", "128"})
+    public int declared;
+
+    private CommandInfo commandInfo;
+    private Parameters parameters;
+    private String args;
+    private ParametersCache cache;
+
+    @Setup
+    public void setup() throws CommandException, OptionException {
+        OptionInfo[] options = new OptionInfo[declared];
+        for (int i = 0; i < declared; i++) {
+            options[i] = new OptionInfo("option" + i, Option.Type.INT, true);
+        }
+        commandInfo = Corpus.newCommandInfo(new String[] {"bench"}, options);
+
+        // four options spread over the declared options, in upper case to
+        // exercise case-insensitive lookup
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            sb.append("-OPTION").append(i * (declared - 1) / 3).append(':').append(i).append(' ');
+        }
+        args = sb.append("args").toString();
+        parameters = Parameters.from(args);
+
+        cache = new ParametersCache();
+        Parameters cached = Parameters.from(args);
+        commandInfo.resolveOptions(cached.options);
+        cache.put(commandInfo, args, cached);
+    }
+
+    /**
+     * Parses and resolves the arguments, as done for every line that is not
+     * cached.
+     */
+    @Benchmark
+    public Parameters parseAndResolve() throws CommandException, OptionException {
+        Parameters parameters = Parameters.from(args);
+        commandInfo.resolveOptions(parameters.options);
+        return parameters;
+    }
+
+    /**
+     * Looks up the parsed and resolved arguments in a cache.
+     */
+    @Benchmark
+    public Parameters cached() {
+        return cache.get(commandInfo, args);
+    }
+
+    @Benchmark
+    public Parameters resolveOptions() throws CommandException, OptionException {
+        commandInfo.resolveOptions(parameters.options);
+        return parameters;
+    }
+}
@@ -0,0 +1,136 @@
+package commando.bench;
+
+import dk.martinu.commando.Glob;
+import dk.martinu.commando.Util;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilBenchmark {
+
+    private char[] plain;
+    private char[] escaped;
+    private String plainString;
+    private String escapedString;
+    private String[] aliases;
+    private String longLine;
+
+    @Setup
+    public void setup() {
+        plain = "a plain option value without any escape sequences in it".toCharArray();
+        escaped = "tab\\tnewline\\nunicode\\u00e6\\u00f8\\u00e5 quote\\\" backslash\\\\".toCharArray();
+        plainString = String.valueOf(plain);
+        escapedString = String.valueOf(escaped);
+        aliases = Corpus.aliases(256);
+        longLine = Corpus.longLine();
+    }
+
+    @Benchmark
+    public char[] unescapePlain() {
+        return Util.unescape(plain);
+    }
+
+    @Benchmark
+    public char[] unescapeEscaped() {
+        return Util.unescape(escaped);
+    }
+
+    @Benchmark
+    public CharSequence unescapePlainString() {
+        return Util.unescape(plainString);
+    }
+
+    @Benchmark
+    public CharSequence unescapeEscapedString() {
+        return Util.unescape(escapedString);
+    }
+
+    /**
+     * Matches a pattern against every alias, as done by the list command.
+     */
+    @Benchmark
+    public void wildcardMatch(Blackhole blackhole) {
+        for (String alias : aliases) {
+            blackhole.consume(Util.wildcardMatch("st", alias));
+        }
+    }
+
+    /**
+     * Matches a compiled glob against every alias, as done by the list
+     * command.
+     */
+    @Benchmark
+    public void globMatch(Blackhole blackhole) {
+        Glob glob = Glob.compile("*st*");
+        for (String alias : aliases) {
+            blackhole.consume(glob.matches(alias));
+        }
+    }
+
+    @Benchmark
+    public void isNameInvalid(Blackhole blackhole) {
+        for (String alias : aliases) {
+            blackhole.consume(Util.isNameInvalid(alias));
+        }
+    }
+
+    /**
+     * Validates every alias with the range checks that were used before names
+     * were validated with a lookup table.
+     */
+    @Benchmark
+    public void isNameInvalidRanges(Blackhole blackhole) {
+        for (String alias : aliases) {
+            blackhole.consume(isNameInvalidRanges(alias, 0, alias.length()));
+        }
+    }
+
+    /**
+     * Finds every space of a long scripted line.
+     */
+    @Benchmark
+    public int indexOfSpace() {
+        int count = 0;
+        int end = longLine.length();
+        for (int i = Util.indexOf(longLine, ' ', 0, end); i != end; i = Util.indexOf(longLine, ' ', i + 1, end)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds every space of a long scripted line one character at a time, as
+     * the parser did before.
+     */
+    @Benchmark
+    public int indexOfSpaceScalar() {
+        int count = 0;
+        CharSequence seq = longLine;
+        for (int i = 0, end = seq.length(); i < end; i++) {
+            if (seq.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isNameInvalidRanges(CharSequence seq, int start, int end) {
+        if (start >= end) {
+            return true;
+        }
+        for (int i = start; i < end; i++) {
+            char c = seq.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'A' || c > 'Z') && (c < 'a' || c > 'z') && c != '_') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
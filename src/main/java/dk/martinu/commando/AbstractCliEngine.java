@@ -3,33 +3,168 @@ package dk.martinu.commando;
 import dk.martinu.commando.cmd.*;
 import org.jetbrains.annotations.*;
 
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.lang.ref.WeakReference;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractCliEngine extends Thread {
 
+    /**
+     * Maximum number of bytes of a script file that are mapped at once by
+     * {@link #runScript(Path)}.
+     */
+    public static final int SCRIPT_WINDOW = 64 * 1024 * 1024;
+
+    // null if lines are read by an overridden readLine method
+    @Nullable
     private final Scanner scanner;
-    private final HashMap<String, CommandInfo> cmdMap = new HashMap<>();
-    private WeakReference<List<CommandEntry>> commands = new WeakReference<>(null);
+    private final CommandRegistry registry;
+    private final CommandStats stats;
+    private final ConcurrentSkipListMap<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicInteger jobCounter = new AtomicInteger(0);
+    // pipes of the pipeline command executed by the current thread
+    private final ThreadLocal<Pipe> inputPipe = new ThreadLocal<>();
+    private final ThreadLocal<Pipe> outputPipe = new ThreadLocal<>();
+    private final ThreadLocal<OutputSink> outputSink = new ThreadLocal<>();
+    // job of the command executed by the current thread
+    private final ThreadLocal<Job> currentJob = new ThreadLocal<>();
+    @NotNull
+    private volatile History history = new History(History.DEFAULT_CAPACITY);
+    @Nullable
+    private volatile ExecutorService jobExecutor = null;
+    @Nullable
+    private volatile ParametersCache parametersCache = null;
+    private volatile boolean stopped = false;
 
     public AbstractCliEngine(@NotNull Scanner scanner, boolean daemon) {
         this.scanner = Objects.requireNonNull(scanner, "scanner is null");
+        this.registry = new CommandRegistry();
+        this.stats = new CommandStats();
+        setDaemon(daemon);
+        initCmdMap();
+    }
+
+    /**
+     * Creates a new engine that shares the commands of {@code registry} and
+     * records statistics in {@code stats}. The registry is used as-is;
+     * {@link #initCmdMap()} is not called.
+     */
+    protected AbstractCliEngine(@NotNull Scanner scanner, boolean daemon, @NotNull CommandRegistry registry,
+            @NotNull CommandStats stats) {
+        this.scanner = Objects.requireNonNull(scanner, "scanner is null");
+        this.registry = Objects.requireNonNull(registry, "registry is null");
+        this.stats = Objects.requireNonNull(stats, "stats is null");
+        setDaemon(daemon);
+    }
+
+    /**
+     * Creates a new engine without a scanner. Subclasses that use this
+     * constructor must override {@link #readLine()} and
+     * {@link #stopEngine()}.
+     */
+    protected AbstractCliEngine(boolean daemon) {
+        this.scanner = null;
+        this.registry = new CommandRegistry();
+        this.stats = new CommandStats();
         setDaemon(daemon);
         initCmdMap();
     }
 
     public void addCommand(@NotNull CommandInfo commandInfo) {
         Objects.requireNonNull(commandInfo, "commandInfo is null");
-        synchronized (cmdMap) {
-            commandInfo.aliases.forEach(alias -> {
-                CommandInfo prev = cmdMap.put(alias, commandInfo);
-                if (prev != null && !prev.cls.equals(commandInfo.cls)) {
-                    // TODO log warning or throw when alias is replaced
-                }
-            });
-            commands.clear();
+        registry.put(commandInfo);
+    }
+
+    /**
+     * Registers the commands of {@code provider} without loading their
+     * classes. Each command class is loaded the first time the command is
+     * dispatched.
+     */
+    public void addCommands(@NotNull CommandProvider provider) {
+        Objects.requireNonNull(provider, "provider is null");
+        registry.putLazy(provider);
+    }
+
+    /**
+     * Returns the candidates for completing the word that ends at
+     * {@code cursor} in {@code line}. The first word of the line is completed
+     * with command aliases, found by a binary search of the sorted alias
+     * index, and words starting with {@code -} that precede the arguments are
+     * completed with the option names of the command.
+     *
+     * @throws IndexOutOfBoundsException if {@code cursor} is not an index in
+     *                                   {@code line} or its length
+     */
+    @NotNull
+    public Completion complete(@NotNull String line, int cursor) {
+        Objects.requireNonNull(line, "line is null");
+        Objects.checkIndex(cursor, line.length() + 1);
+
+        // start of the word at the cursor and of the command name
+        int start = cursor;
+        while (start > 0 && line.charAt(start - 1) != ' ') {
+            start--;
+        }
+        int nameStart = 0;
+        while (nameStart < start && line.charAt(nameStart) <= ' ') {
+            nameStart++;
+        }
+        if (nameStart == start) {
+            String prefix = line.substring(start, cursor).toLowerCase(Locale.ROOT);
+            return new Completion(start, registry.getAliasesWithPrefix(prefix));
+        }
+
+        // option names can only be completed before any arguments
+        if (line.charAt(start) != '-' || line.lastIndexOf(':', cursor - 1) >= start) {
+            return new Completion(start, List.of());
+        }
+        int nameEnd = line.indexOf(' ', nameStart);
+        CommandInfo cmdInfo = registry.get(line.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT));
+        if (cmdInfo == null || cmdInfo.options.isEmpty()) {
+            return new Completion(start, List.of());
+        }
+        try {
+            if (!Parameters.from(line, nameEnd, start).args.isEmpty()) {
+                return new Completion(start, List.of());
+            }
+        }
+        catch (OptionException e) {
+            return new Completion(start, List.of());
+        }
+        int length = cursor - start - 1;
+        List<String> candidates = new ArrayList<>();
+        for (OptionInfo option : cmdInfo.options) {
+            if (option.name().regionMatches(true, 0, line, start + 1, length)) {
+                candidates.add('-' + option.name());
+            }
+        }
+        candidates.sort(null);
+        return new Completion(start, List.copyOf(candidates));
+    }
+
+    /**
+     * Returns the candidates for completing the last word of {@code line},
+     * see {@link #complete(String, int)}.
+     */
+    @NotNull
+    public Completion complete(@NotNull String line) {
+        Objects.requireNonNull(line, "line is null");
+        return complete(line, line.length());
+    }
+
+    /**
+     * Registers the commands of all {@link CommandProvider} services found by
+     * {@link ServiceLoader}, see {@link #addCommands(CommandProvider)}.
+     */
+    public void discoverCommands() {
+        for (CommandProvider provider : ServiceLoader.load(CommandProvider.class)) {
+            addCommands(provider);
         }
     }
 
@@ -37,110 +172,408 @@ public abstract class AbstractCliEngine extends Thread {
     @Nullable
     public CommandInfo getCommand(@NotNull String alias) {
         Objects.requireNonNull(alias, "alias is null");
-        synchronized (cmdMap) {
-            return cmdMap.get(alias);
-        }
+        return registry.get(alias);
+    }
+
+    /**
+     * Returns the aliases of all commands in natural order, without loading
+     * any command classes.
+     */
+    @Unmodifiable
+    @NotNull
+    public List<String> getCommandAliases() {
+        return registry.getAliases();
+    }
+
+    /**
+     * Returns the aliases of all commands that are greater than or equal to
+     * {@code from} and less than {@code to}, in natural order.
+     */
+    @Unmodifiable
+    @NotNull
+    public List<String> getCommandAliasesInRange(@NotNull String from, @NotNull String to) {
+        return registry.getAliasesInRange(from, to);
+    }
+
+    /**
+     * Returns the aliases of all commands that start with {@code prefix}, in
+     * natural order.
+     */
+    @Unmodifiable
+    @NotNull
+    public List<String> getCommandAliasesWithPrefix(@NotNull String prefix) {
+        return registry.getAliasesWithPrefix(prefix);
     }
 
     @Unmodifiable
     @NotNull
     public List<CommandEntry> getCommandEntries() {
-        synchronized (cmdMap) {
-            List<CommandEntry> list = commands.get();
-            if (list == null) {
-                // TESTME with ListCmd
-                //noinspection SimplifyStreamApiCallChains
-                list = cmdMap.entrySet().stream()
-                        .map(entry -> new CommandEntry(entry.getKey(), entry.getValue()))
-                        .sorted()
-                        .collect(Collectors.toUnmodifiableList());
-                commands = new WeakReference<>(list);
-            }
-            return list;
+        // TESTME with ListCmd
+        return registry.getEntries();
+    }
+
+    /**
+     * Returns the job that the command executed by the current thread belongs
+     * to, or {@code null} if the command was not submitted as a job.
+     */
+    @Contract(pure = true)
+    @Nullable
+    public Job getCurrentJob() {
+        return currentJob.get();
+    }
+
+    @Contract(pure = true)
+    @Nullable
+    public Job getJob(int id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Returns the history of lines read by this engine.
+     */
+    @Contract(pure = true)
+    @NotNull
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the sink that the executing command can append its output to
+     * incrementally. The sink belongs to the current thread and its buffer is
+     * reused by every command executed by the thread.
+     */
+    @NotNull
+    public OutputSink getOutput() {
+        OutputSink sink = outputSink.get();
+        if (sink == null) {
+            outputSink.set(sink = new OutputSink(this));
         }
+        return sink;
+    }
+
+    /**
+     * Returns the cache of parsed parameters, or {@code null} if parameters
+     * are not cached.
+     */
+    @Contract(pure = true)
+    @Nullable
+    public ParametersCache getParametersCache() {
+        return parametersCache;
+    }
+
+    @Unmodifiable
+    @NotNull
+    public List<Job> getJobs() {
+        return List.copyOf(jobs.values());
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public CommandStats getStats() {
+        return stats;
+    }
+
+    @Contract(pure = true)
+    public boolean hasCommand(@NotNull Class<? extends Command> cls) {
+        Objects.requireNonNull(cls, "cls is null");
+        return registry.containsClass(cls);
     }
 
     @Contract(pure = true)
     public boolean hasCommand(@NotNull CommandInfo commandInfo) {
         Objects.requireNonNull(commandInfo, "commandInfo is null");
-        synchronized (cmdMap) {
-            return cmdMap.containsValue(commandInfo);
-        }
+        return registry.containsValue(commandInfo);
+    }
+
+    /**
+     * Returns {@code true} if the executing command is part of a pipeline and
+     * is not its first command, otherwise {@code false}. The output of the
+     * previous command can be read with {@link #readInput()}.
+     */
+    @Contract(pure = true)
+    public boolean isInputPiped() {
+        return inputPipe.get() != null;
     }
 
     public void printf(@NotNull String format, Object... args) {
+        finishOutput();
+        Pipe pipe = outputPipe.get();
+        if (pipe != null) {
+            writePipe(pipe, String.format(format, args));
+            return;
+        }
         PrintWriter out = out();
         synchronized (out) {
-            out().printf(format, args).println();
-            out().flush();
+            out.printf(format, args).println();
+            if (!isOutputBatched()) {
+                out.flush();
+            }
         }
     }
 
     public void println(@NotNull String s) {
+        finishOutput();
+        Pipe pipe = outputPipe.get();
+        if (pipe != null) {
+            writePipe(pipe, s);
+            return;
+        }
         PrintWriter out = out();
         synchronized (out) {
-            out().println(s);
-            out().flush();
+            out.println(s);
+            if (!isOutputBatched()) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Returns the next line printed by the previous command of the pipeline
+     * that the executing command is part of, waiting for it to be printed if
+     * necessary. Returns {@code null} if the previous command has finished
+     * and all its lines have been read, if the thread is interrupted, or if
+     * the executing command is not piped into.
+     *
+     * @see #isInputPiped()
+     */
+    @Nullable
+    public String readInput() {
+        Pipe pipe = inputPipe.get();
+        if (pipe == null) {
+            return null;
+        }
+        try {
+            return pipe.readLine();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         }
     }
 
     @Nullable
     public CommandInfo removeCommand(@NotNull String name) {
         Objects.requireNonNull(name, "name is null");
-        synchronized (cmdMap) {
-            CommandInfo rv = cmdMap.remove(name.toLowerCase(Locale.ROOT));
-            commands.clear();
-            return rv;
-        }
+        return registry.remove(name.toLowerCase(Locale.ROOT));
     }
 
     @Override
     public void run() {
         CommandLine cmdl;
         out().println("Commando ready for input...");
-        while ((cmdl = getLine()) != null) {
-            CommandInfo cmdInfo;
-            synchronized (cmdMap) {
-                cmdInfo = cmdMap.get(cmdl.name.toLowerCase(Locale.ROOT));
-            }
-            if (cmdInfo != null) {
-                try {
-                    Parameters p = Parameters.from(cmdl.args);
-                    // FIXME value options lost first char
-                    cmdInfo.resolveOptions(p.options);
-                    cmdInfo.getCommand().execute(this, p);
+        while (!stopped && (cmdl = getLine()) != null) {
+            dispatch(cmdl);
+            checkError();
+        }
+        ExecutorService executor = jobExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        history.flush();
+        freeResources();
+    }
+
+    /**
+     * Executes each line of the specified script file as if it was read from
+     * the engine's input, and prints the number of lines executed and the
+     * throughput when done. Blank lines and lines starting with {@code '#'}
+     * are skipped. Execution stops early if the engine is stopped.
+     * <p>
+     * The file is memory-mapped in windows of up to {@value #SCRIPT_WINDOW}
+     * bytes and decoded as UTF-8 one line at a time.
+     *
+     * @param file the script file
+     * @return the number of lines executed
+     * @throws IOException if the file could not be read, or if a line does not
+     *                     fit within a single window
+     */
+    public long runScript(@NotNull Path file) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        long startNanos = System.nanoTime();
+        long count = 0L;
+        byte[] bytes = new byte[256];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0L;
+            while (position < size && !stopped) {
+                long windowSize = Math.min(SCRIPT_WINDOW, size - position);
+                boolean last = position + windowSize == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int limit = buffer.limit();
+                int lineStart = 0;
+                for (int i = 0; i <= limit && !stopped; i++) {
+                    // the end of the last window also ends the line
+                    if (i == limit ? last && lineStart < limit : buffer.get(i) == '\n') {
+                        int lineEnd = i;
+                        if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                            lineEnd--;
+                        }
+                        int length = lineEnd - lineStart;
+                        if (length > bytes.length) {
+                            bytes = new byte[Math.max(length, bytes.length * 2)];
+                        }
+                        buffer.get(lineStart, bytes, 0, length);
+                        String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                        lineStart = i + 1;
+
+                        CommandLine cmdl = CommandLine.from(line);
+                        if (!cmdl.name.isEmpty() && !cmdl.name.startsWith("#")) {
+                            dispatch(cmdl);
+                            count++;
+                            // checkError flushes the output, so it is only checked periodically
+                            if ((count & 0x3FF) == 0 && out().checkError()) {
+                                throw new IOException("output encountered an error");
+                            }
+                        }
+                    }
                 }
-                catch (OptionException | CommandException e) {
-                    // TODO check cause
-                    printf("error: %s", e.getMessage());
+                if (last) {
+                    position = size;
+                }
+                else if (lineStart == 0) {
+                    throw new IOException("line at position " + position + " exceeds " + SCRIPT_WINDOW + " bytes");
+                }
+                else {
+                    // continue from the start of the incomplete line
+                    position += lineStart;
                 }
             }
-            else {
-                printf("unknown command '%s'", cmdl.name);
-            }
-            checkError();
         }
-        freeResources();
+        long nanos = Math.max(System.nanoTime() - startNanos, 1L);
+        printf("executed %d lines in %.3f ms (%.0f lines/s)", count, nanos / 1e6, count * 1e9 / nanos);
+        out().flush();
+        return count;
+    }
+
+    /**
+     * Sets the history that lines read by this engine are added to, e.g. a
+     * history opened from a file. The engine does not close the history.
+     */
+    public void setHistory(@NotNull History history) {
+        this.history = Objects.requireNonNull(history, "history is null");
+    }
+
+    /**
+     * Sets the cache that parsed and resolved parameters are stored in, or
+     * {@code null} to parse the arguments of every line, which is the
+     * default. Caching benefits clients that send the same lines repeatedly.
+     */
+    public void setParametersCache(@Nullable ParametersCache cache) {
+        parametersCache = cache;
     }
 
     public void stopEngine() {
-        scanner.close();
+        stopped = true;
+        if (scanner != null) {
+            scanner.close();
+        }
+    }
+
+    /**
+     * Submits {@code line} for execution as a background job. The returned
+     * future completes when the command, or every command of a pipeline, has
+     * executed, or completes exceptionally if a command is unknown or the
+     * last command fails. Completing the returned future does not affect the
+     * job; use {@link Job#cancel()} to cancel it.
+     */
+    @NotNull
+    public CompletableFuture<Void> submit(@NotNull String line) {
+        Objects.requireNonNull(line, "line is null");
+        CommandLine cmdl = CommandLine.from(line);
+        CommandInfo[] cmdInfos;
+        try {
+            cmdInfos = getCommands(cmdl);
+        }
+        catch (CommandException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return submit(cmdInfos, cmdl).getFuture();
+    }
+
+    /**
+     * Returns a new executor for background jobs. The executor is created the
+     * first time a job is submitted and is shut down when the engine stops.
+     */
+    @NotNull
+    protected ExecutorService createJobExecutor() {
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "commando-job");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     protected abstract void freeResources();
 
+    /**
+     * Returns {@code true} if the output of this engine flushes itself, e.g.
+     * by size or time, otherwise {@code false}. If {@code false}, which is
+     * the default, the output is flushed after every line printed by
+     * {@link #printf(String, Object...)} and {@link #println(String)}. The
+     * output is always flushed before the engine waits for input.
+     */
+    @Contract(pure = true)
+    protected boolean isOutputBatched() {
+        return false;
+    }
+
+    /**
+     * Prints the lines in the specified range of {@code chars}, which are
+     * separated by {@code '\n'}. The last line does not have to be
+     * terminated.
+     */
+    void printLines(@NotNull char[] chars, int offset, int length) {
+        Pipe pipe = outputPipe.get();
+        if (pipe != null) {
+            writePipe(pipe, new String(chars, offset, length));
+            return;
+        }
+        PrintWriter out = out();
+        synchronized (out) {
+            int start = offset;
+            int end = offset + length;
+            for (int i = offset; i <= end; i++) {
+                if (i == end || chars[i] == '\n') {
+                    out.write(chars, start, i - start);
+                    out.println();
+                    start = i + 1;
+                }
+            }
+            if (!isOutputBatched()) {
+                out.flush();
+            }
+        }
+    }
+
+    @Contract(pure = true)
+    protected boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Returns the next line of input without its line terminator, or
+     * {@code null} if there is no more input or the input is closed.
+     */
+    @Nullable
+    protected String readLine() {
+        try {
+            if (scanner != null && scanner.hasNextLine()) {
+                return scanner.nextLine();
+            }
+        }
+        catch (IllegalStateException ignore) { }
+        return null;
+    }
+
     protected void initCmdMap() {
-        addCommand(ListCmd.getInfo());
-        addCommand(HelpCmd.getInfo());
-        addCommand(CommandCmd.getInfo());
-        addCommand(ExitCmd.getInfo());
+        addCommands(new BuiltinCommands());
     }
 
     @NotNull
     protected abstract PrintWriter out();
 
     private void checkError() {
-        if (scanner.ioException() != null) {
+        if (scanner != null && scanner.ioException() != null) {
             System.err.println("terminating engine; scanner encountered an IOException");
             scanner.ioException().printStackTrace();
             stopEngine();
@@ -151,34 +584,437 @@ public abstract class AbstractCliEngine extends Thread {
         }
     }
 
+    private void dispatch(@NotNull CommandLine cmdl) {
+        if (cmdl.next != null) {
+            dispatchPipeline(cmdl);
+            return;
+        }
+        CommandInfo cmdInfo = registry.get(cmdl.name.toLowerCase(Locale.ROOT));
+        if (cmdInfo != null) {
+            if (cmdl.background) {
+                submit(new CommandInfo[] {cmdInfo}, cmdl);
+            }
+            else {
+                try {
+                    execute(cmdInfo, cmdl);
+                }
+                catch (OptionException | CommandException e) {
+                    // TODO check cause
+                    printf("error: %s", e.getMessage());
+                }
+            }
+        }
+        else {
+            printf("unknown command '%s'", cmdl.name);
+        }
+    }
+
+    private void dispatchPipeline(@NotNull CommandLine cmdl) {
+        CommandInfo[] cmdInfos;
+        try {
+            cmdInfos = getCommands(cmdl);
+        }
+        catch (CommandException e) {
+            println(e.getMessage());
+            return;
+        }
+        if (cmdl.background) {
+            submit(cmdInfos, cmdl);
+        }
+        else {
+            try {
+                executePipeline(cmdInfos, cmdl);
+            }
+            catch (OptionException | CommandException e) {
+                printf("error: %s", e.getMessage());
+            }
+        }
+    }
+
+    private void execute(@NotNull CommandInfo cmdInfo, @NotNull CommandLine cmdl) throws OptionException, CommandException {
+        ParametersCache cache = cmdl.argsStart >= 0 ? parametersCache : null;
+        String args = cache != null ? cmdl.args() : null;
+        if (!stats.isEnabled()) {
+            Parameters p = cache != null ? cache.get(cmdInfo, args) : null;
+            if (p == null) {
+                p = cmdl.parameters();
+                cmdInfo.resolveOptions(p.options);
+                if (cache != null) {
+                    cache.put(cmdInfo, args, p);
+                }
+            }
+            try {
+                cmdInfo.getCommand().execute(this, p);
+            }
+            finally {
+                finishOutput();
+            }
+            return;
+        }
+
+        CommandStats.Recorder recorder = stats.recorder(cmdInfo);
+        boolean error = true;
+        try {
+            long t0 = System.nanoTime();
+            Parameters p = cache != null ? cache.get(cmdInfo, args) : null;
+            long t2;
+            if (p == null) {
+                p = cmdl.parameters();
+                long t1 = System.nanoTime();
+                recorder.recordPhase(CommandStats.Phase.PARSE, t1 - t0);
+                cmdInfo.resolveOptions(p.options);
+                if (cache != null) {
+                    cache.put(cmdInfo, args, p);
+                }
+                t2 = System.nanoTime();
+                recorder.recordPhase(CommandStats.Phase.RESOLVE, t2 - t1);
+            }
+            else {
+                // a cache hit is recorded as parsing; the options are already resolved
+                t2 = System.nanoTime();
+                recorder.recordPhase(CommandStats.Phase.PARSE, t2 - t0);
+                recorder.recordPhase(CommandStats.Phase.RESOLVE, 0L);
+            }
+            Command command = cmdInfo.getCommand();
+            long t3 = System.nanoTime();
+            recorder.recordPhase(CommandStats.Phase.INSTANTIATE, t3 - t2);
+            try {
+                command.execute(this, p);
+            }
+            finally {
+                finishOutput();
+            }
+            recorder.recordPhase(CommandStats.Phase.EXECUTE, System.nanoTime() - t3);
+            error = false;
+        }
+        finally {
+            recorder.recordCall(error);
+        }
+    }
+
+    /**
+     * Executes each command of a pipeline. Every command but the last is
+     * executed by a job thread and prints to a pipe that the next command
+     * reads from, so output is streamed between the commands. The last
+     * command is executed by the current thread. When it is done, the other
+     * commands are waited for; any output they print afterwards is discarded.
+     */
+    private void executePipeline(@NotNull CommandInfo[] cmdInfos, @NotNull CommandLine cmdl) throws OptionException,
+            CommandException {
+        ExecutorService executor = getJobExecutor();
+        Job job = currentJob.get();
+        List<Pipe> pipes = new ArrayList<>(cmdInfos.length - 1);
+        List<Future<?>> stages = new ArrayList<>(cmdInfos.length - 1);
+        boolean done = false;
+        try {
+            Pipe input = null;
+            CommandLine stage = cmdl;
+            for (int i = 0; stage.next != null; i++, stage = stage.next) {
+                Pipe output = new Pipe(Pipe.DEFAULT_CAPACITY);
+                pipes.add(output);
+                CommandInfo stageInfo = cmdInfos[i];
+                CommandLine stageLine = stage;
+                Pipe stageInput = input;
+                try {
+                    stages.add(executor.submit(() -> executeStage(stageInfo, stageLine, stageInput, output, job)));
+                }
+                catch (RejectedExecutionException e) {
+                    throw new CommandException("could not execute pipeline; engine is stopping");
+                }
+                input = output;
+            }
+            inputPipe.set(input);
+            execute(cmdInfos[cmdInfos.length - 1], stage);
+            done = true;
+        }
+        finally {
+            inputPipe.remove();
+            for (Pipe pipe : pipes) {
+                pipe.closeReader();
+            }
+            awaitStages(stages, done);
+        }
+    }
+
+    /**
+     * Waits for the commands of a pipeline to finish. Unchecked exceptions
+     * thrown by the commands are rethrown if {@code rethrow} is
+     * {@code true}.
+     */
+    private void awaitStages(@NotNull List<Future<?>> stages, boolean rethrow) {
+        for (int i = 0; i < stages.size(); i++) {
+            try {
+                stages.get(i).get();
+            }
+            catch (InterruptedException e) {
+                for (int k = i; k < stages.size(); k++) {
+                    stages.get(k).cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException e) {
+                if (rethrow && e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                if (rethrow && e.getCause() instanceof Error error) {
+                    throw error;
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes a command of a pipeline that prints to {@code output}. Errors
+     * are printed to the engine's output, not to the pipe.
+     */
+    private void executeStage(@NotNull CommandInfo cmdInfo, @NotNull CommandLine cmdl, @Nullable Pipe input,
+            @NotNull Pipe output, @Nullable Job job) {
+        Exception error = null;
+        inputPipe.set(input);
+        outputPipe.set(output);
+        currentJob.set(job);
+        try {
+            execute(cmdInfo, cmdl);
+        }
+        catch (OptionException | CommandException e) {
+            error = e;
+        }
+        finally {
+            inputPipe.remove();
+            outputPipe.remove();
+            currentJob.remove();
+            output.closeWriter();
+            if (input != null) {
+                input.closeReader();
+            }
+        }
+        if (error != null) {
+            printf("error: %s", error.getMessage());
+        }
+    }
+
+    /**
+     * Returns the command of each command line of a pipeline.
+     *
+     * @throws CommandException if a command is unknown
+     */
+    @NotNull
+    private CommandInfo[] getCommands(@NotNull CommandLine cmdl) throws CommandException {
+        int count = 0;
+        for (CommandLine stage = cmdl; stage != null; stage = stage.next) {
+            count++;
+        }
+        CommandInfo[] cmdInfos = new CommandInfo[count];
+        int i = 0;
+        for (CommandLine stage = cmdl; stage != null; stage = stage.next) {
+            if (stage.name.isEmpty() && count > 1) {
+                throw new CommandException("missing command in pipeline");
+            }
+            CommandInfo cmdInfo = registry.get(stage.name.toLowerCase(Locale.ROOT));
+            if (cmdInfo == null) {
+                throw new CommandException("unknown command '" + stage.name + "'");
+            }
+            cmdInfos[i++] = cmdInfo;
+        }
+        return cmdInfos;
+    }
+
+    // prints the output left in the current thread's sink
+    private void finishOutput() {
+        OutputSink sink = outputSink.get();
+        if (sink != null) {
+            sink.finish();
+        }
+    }
+
+    @NotNull
+    private ExecutorService getJobExecutor() {
+        ExecutorService executor = jobExecutor;
+        if (executor == null) {
+            synchronized (jobs) {
+                executor = jobExecutor;
+                if (executor == null) {
+                    jobExecutor = executor = createJobExecutor();
+                }
+            }
+        }
+        return executor;
+    }
+
     @Nullable
     private CommandLine getLine() {
-        try {
-            if (scanner.hasNextLine()) {
-                return CommandLine.from(scanner.nextLine().trim());
+        // prompt boundary; pending output must be visible before reading
+        out().flush();
+        String line = readLine();
+        if (line == null) {
+            return null;
+        }
+        if (!line.isBlank()) {
+            history.add(line);
+        }
+        return CommandLine.from(line);
+    }
+
+    @NotNull
+    private Job submit(@NotNull CommandInfo[] cmdInfos, @NotNull CommandLine cmdl) {
+        Job job = new Job(jobCounter.incrementAndGet(), cmdl.toString());
+        jobs.put(job.id, job);
+        printf("[%d] %s", job.id, job.line);
+        job.future.whenComplete((v, t) -> {
+            jobs.remove(job.id);
+            if (t == null) {
+                printf("[%d] done %s", job.id, job.line);
+            }
+            else if (job.future.isCancelled()) {
+                printf("[%d] cancelled %s", job.id, job.line);
             }
+            else {
+                Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                printf("[%d] error: %s", job.id, cause.getMessage());
+            }
+        });
+        try {
+            job.task = getJobExecutor().submit(() -> {
+                currentJob.set(job);
+                try {
+                    if (cmdl.next == null) {
+                        execute(cmdInfos[0], cmdl);
+                    }
+                    else {
+                        executePipeline(cmdInfos, cmdl);
+                    }
+                    job.future.complete(null);
+                }
+                catch (Throwable t) {
+                    job.future.completeExceptionally(t);
+                }
+                finally {
+                    currentJob.remove();
+                }
+            });
         }
-        catch (IllegalStateException ignore) { }
-        return null;
+        catch (RejectedExecutionException e) {
+            job.future.completeExceptionally(e);
+        }
+        return job;
     }
 
-    private record CommandLine(@NotNull String name, @Nullable String args) {
+    private void writePipe(@NotNull Pipe pipe, @NotNull String s) {
+        try {
+            pipe.write(s);
+        }
+        catch (InterruptedException e) {
+            // the line is discarded
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A command name and the range of its arguments in the line it was read
+     * from. The arguments are not copied from the line; they are tokenized in
+     * place by {@link Parameters#from(CharSequence, int, int)}.
+     * <p>
+     * Commands of a pipeline are separated by {@code |} outside double
+     * quotes, and each command links to the {@link #next} command. Only the
+     * first command is marked as {@link #background}.
+     */
+    private record CommandLine(@NotNull String name, @NotNull String line, int argsStart, int argsEnd,
+            boolean background, @Nullable CommandLine next) {
 
         @Contract(value = "_ -> new", pure = true)
         @NotNull
         static CommandLine from(@NotNull String line) {
-            int index = line.indexOf(' ');
-            if (index == -1) {
-                return new CommandLine(line, null);
+            // trim without copying
+            int start = 0;
+            int end = line.length();
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            boolean background = false;
+            if (end > start && line.charAt(end - 1) == '&') {
+                background = true;
+                end--;
+                while (end > start && line.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+            }
+            return from(line, start, end, background);
+        }
+
+        @Contract(pure = true)
+        private static int indexOfPipe(@NotNull String line, int start, int end) {
+            boolean quoted = false;
+            for (int i = start; i < end; i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                }
+                else if (quoted && c == '\\') {
+                    i++;
+                }
+                else if (!quoted && c == '|') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Contract(value = "_, _, _, _ -> new", pure = true)
+        @NotNull
+        private static CommandLine from(@NotNull String line, int start, int end, boolean background) {
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            CommandLine next = null;
+            int pipe = indexOfPipe(line, start, end);
+            if (pipe != -1) {
+                next = from(line, pipe + 1, end, false);
+                end = pipe;
+                while (end > start && line.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+            }
+            int index = Util.indexOf(line, ' ', start, end);
+            String name = line.substring(start, index);
+            if (index == end) {
+                return new CommandLine(name, line, -1, -1, background, next);
             }
             else {
-                return new CommandLine(line.substring(0, index), line.substring(index + 1));
+                return new CommandLine(name, line, index + 1, end, background, next);
             }
         }
 
-        public CommandLine(@NotNull String name, @Nullable String args) {
-            this.name = Objects.requireNonNull(name, "name is null");
-            this.args = args;
+        public CommandLine {
+            Objects.requireNonNull(name, "name is null");
+            Objects.requireNonNull(line, "line is null");
+        }
+
+        @Contract(pure = true)
+        @NotNull
+        String args() {
+            return argsStart < 0 ? "" : line.substring(argsStart, argsEnd);
+        }
+
+        @NotNull
+        Parameters parameters() throws OptionException {
+            if (argsStart < 0) {
+                return Parameters.EMPTY_PARAMETERS;
+            }
+            else {
+                return Parameters.from(line, argsStart, argsEnd);
+            }
+        }
+
+        @Contract(pure = true)
+        @NotNull
+        @Override
+        public String toString() {
+            String s = argsStart < 0 ? name : name + ' ' + line.substring(argsStart, argsEnd);
+            return next == null ? s : s + " | " + next;
         }
     }
 }
@@ -0,0 +1,325 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A writer that collects characters in a reusable buffer and writes them to
+ * a target writer on a dedicated thread. Buffered characters are written
+ * when the buffer holds {@link FlushPolicy#maxChars()} characters, when the
+ * oldest character has been buffered for {@link FlushPolicy#maxDelayMillis()}
+ * milliseconds, or when {@link #flush()} is called.
+ * <p>
+ * Writing only blocks if the target falls behind by more than twice the
+ * policy's {@code maxChars}. Errors that occur when writing to the target are
+ * thrown by the next call to a method of this writer.
+ */
+public final class BatchingWriter extends Writer {
+
+    @NotNull
+    private final Writer target;
+    @NotNull
+    private final FlushPolicy policy;
+    @NotNull
+    private final ReentrantLock lock = new ReentrantLock();
+    // signalled when the buffer should be written to the target
+    @NotNull
+    private final Condition drain = lock.newCondition();
+    // signalled when buffer space is made available
+    @NotNull
+    private final Condition drained = lock.newCondition();
+    @NotNull
+    private final Thread drainer;
+    // buffer that characters are written to; swapped with spare when drained
+    @NotNull
+    private char[] buffer;
+    // only accessed by the drainer thread
+    @NotNull
+    private char[] spare;
+    private int count = 0;
+    // time when the first character in buffer was written
+    private long firstWriteNanos = 0L;
+    // true while the drainer is writing to the target
+    private boolean writing = false;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+    @Nullable
+    private volatile IOException error = null;
+
+    public BatchingWriter(@NotNull Writer target) {
+        this(target, FlushPolicy.DEFAULT);
+    }
+
+    public BatchingWriter(@NotNull Writer target, @NotNull FlushPolicy policy) {
+        this.target = Objects.requireNonNull(target, "target is null");
+        this.policy = Objects.requireNonNull(policy, "policy is null");
+        buffer = new char[policy.maxChars * 2];
+        spare = new char[policy.maxChars * 2];
+        drainer = new Thread(this::drainLoop, "commando-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Writes all buffered characters to the target, waits for the target to
+     * be closed and closes the target.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            drain.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+        try {
+            drainer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing");
+        }
+        try {
+            target.close();
+        }
+        finally {
+            throwError();
+        }
+    }
+
+    /**
+     * Requests that all buffered characters are written to the target and
+     * the target is flushed. This method does not wait for the characters to
+     * be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            if (count != 0) {
+                flushRequested = true;
+                drain.signal();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public FlushPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Writes all buffered characters to the target, flushes the target and
+     * waits for both to complete.
+     */
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            while ((count != 0 || writing) && error == null) {
+                if (count != 0) {
+                    flushRequested = true;
+                    drain.signal();
+                }
+                drained.await();
+            }
+            throwError();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while flushing");
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(@SuppressWarnings("NullableProblems") char[] chars, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, chars.length);
+        lock.lock();
+        try {
+            while (length > 0) {
+                int n = Math.min(awaitSpace(), length);
+                System.arraycopy(chars, offset, buffer, count, n);
+                commit(n);
+                offset += n;
+                length -= n;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing");
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(@NotNull String s, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, s.length());
+        lock.lock();
+        try {
+            while (length > 0) {
+                int n = Math.min(awaitSpace(), length);
+                s.getChars(offset, offset + n, buffer, count);
+                commit(n);
+                offset += n;
+                length -= n;
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing");
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        write(new char[] {(char) c}, 0, 1);
+    }
+
+    /**
+     * Waits until the buffer has space and returns the number of free
+     * characters. Must be called while holding the lock.
+     */
+    private int awaitSpace() throws IOException, InterruptedException {
+        ensureOpen();
+        while (count == buffer.length) {
+            // target is falling behind
+            drain.signal();
+            drained.await();
+            ensureOpen();
+        }
+        return buffer.length - count;
+    }
+
+    /**
+     * Marks {@code n} characters as written to the buffer and signals the
+     * drainer if needed. Must be called while holding the lock.
+     */
+    private void commit(int n) {
+        if (count == 0) {
+            firstWriteNanos = System.nanoTime();
+            drain.signal();
+        }
+        count += n;
+        if (count >= policy.maxChars) {
+            drain.signal();
+        }
+    }
+
+    private void drainLoop() {
+        long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(policy.maxDelayMillis);
+        lock.lock();
+        try {
+            while (true) {
+                // wait until the buffer must be drained
+                while (!closed && !flushRequested && count < policy.maxChars) {
+                    if (count == 0) {
+                        drain.awaitUninterruptibly();
+                    }
+                    else {
+                        long remaining = firstWriteNanos + maxDelayNanos - System.nanoTime();
+                        if (remaining <= 0L) {
+                            break;
+                        }
+                        //noinspection ResultOfMethodCallIgnored
+                        drain.awaitNanos(remaining);
+                    }
+                }
+                if (count == 0 && closed) {
+                    break;
+                }
+
+                // swap buffers and write outside the lock
+                char[] chars = buffer;
+                int length = count;
+                buffer = spare;
+                count = 0;
+                flushRequested = false;
+                writing = true;
+                drained.signalAll();
+                lock.unlock();
+                try {
+                    if (error == null) {
+                        target.write(chars, 0, length);
+                        target.flush();
+                    }
+                }
+                catch (IOException e) {
+                    error = e;
+                }
+                finally {
+                    spare = chars;
+                    lock.lock();
+                }
+                writing = false;
+                drained.signalAll();
+            }
+        }
+        catch (InterruptedException ignore) {
+            // only thrown by awaitNanos; the drainer thread is never interrupted
+        }
+        finally {
+            drained.signalAll();
+            lock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        throwError();
+        if (closed) {
+            throw new IOException("writer is closed");
+        }
+    }
+
+    private void throwError() throws IOException {
+        IOException e = error;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Determines when a {@link BatchingWriter} writes buffered characters to
+     * its target.
+     *
+     * @param maxChars       number of buffered characters that causes the
+     *                       buffer to be written
+     * @param maxDelayMillis maximum number of milliseconds characters are
+     *                       buffered before they are written
+     */
+    public record FlushPolicy(int maxChars, long maxDelayMillis) {
+
+        public static final FlushPolicy DEFAULT = new FlushPolicy(8192, 20L);
+
+        public FlushPolicy {
+            if (maxChars < 1) {
+                throw new IllegalArgumentException("maxChars must be positive {" + maxChars + "}");
+            }
+            if (maxDelayMillis < 0L) {
+                throw new IllegalArgumentException("maxDelayMillis is negative {" + maxDelayMillis + "}");
+            }
+        }
+    }
+}
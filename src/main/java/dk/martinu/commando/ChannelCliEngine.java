@@ -0,0 +1,263 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An engine that reads input from a {@link ReadableByteChannel} and writes
+ * output to a {@link WritableByteChannel}, without any intermediate streams,
+ * readers or scanners. Bytes are read into and encoded into reusable buffers,
+ * and ASCII text is decoded and encoded without a {@link CharsetDecoder} or
+ * {@link CharsetEncoder}.
+ * <p>
+ * Only charsets that encode ASCII characters as single bytes of the same
+ * value, such as UTF-8 and ISO-8859-1, are supported.
+ */
+public class ChannelCliEngine extends AbstractCliEngine {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Returns a new engine that reads from standard input and writes to
+     * standard output. Neither is closed when the engine stops.
+     */
+    @Contract(value = "_ -> new", pure = true)
+    @NotNull
+    public static ChannelCliEngine forSystem(boolean daemon) {
+        return new ChannelCliEngine(new FileInputStream(FileDescriptor.in).getChannel(),
+                new FileOutputStream(FileDescriptor.out).getChannel(), Util.getStdoutCharset(), daemon, false);
+    }
+
+    @Contract(pure = true)
+    private static boolean isAsciiCompatible(@NotNull Charset charset) {
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        try {
+            return charset.canEncode() && Arrays.equals(ascii,
+                    new String(ascii, StandardCharsets.US_ASCII).getBytes(charset));
+        }
+        catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    @NotNull
+    public final PrintWriter out;
+    @NotNull
+    private final ReadableByteChannel in;
+    @NotNull
+    private final Charset charset;
+    private final boolean closeChannels;
+    // bytes in the range [lineStart, limit) have been read but not consumed
+    @NotNull
+    private byte[] bytes = new byte[BUFFER_SIZE];
+    private int lineStart = 0;
+    private int limit = 0;
+    // bytes in the range [lineStart, scanned) do not contain a line feed
+    private int scanned = 0;
+    private boolean eof = false;
+
+    /**
+     * Creates a new engine. If {@code closeChannels} is {@code true}, both
+     * channels are closed when the engine stops; otherwise they are left
+     * open.
+     *
+     * @throws IllegalArgumentException if {@code charset} does not encode
+     *                                  ASCII characters as single bytes
+     */
+    public ChannelCliEngine(@NotNull ReadableByteChannel in, @NotNull WritableByteChannel out,
+            @NotNull Charset charset, boolean daemon, boolean closeChannels) {
+        super(daemon);
+        this.in = Objects.requireNonNull(in, "in is null");
+        Objects.requireNonNull(out, "out is null");
+        this.charset = Objects.requireNonNull(charset, "charset is null");
+        if (!isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("charset is not ASCII compatible {" + charset + "}");
+        }
+        this.closeChannels = closeChannels;
+        this.out = new PrintWriter(new ChannelWriter(out, charset, closeChannels));
+    }
+
+    @Override
+    public void stopEngine() {
+        super.stopEngine();
+        if (closeChannels) {
+            try {
+                in.close();
+            }
+            catch (IOException ignore) { }
+        }
+    }
+
+    @Override
+    protected void freeResources() {
+        out.close();
+        if (closeChannels) {
+            try {
+                in.close();
+            }
+            catch (IOException ignore) { }
+        }
+    }
+
+    @Override
+    @NotNull
+    protected PrintWriter out() {
+        return out;
+    }
+
+    @Nullable
+    @Override
+    protected String readLine() {
+        try {
+            while (true) {
+                // look for the next line feed in bytes that have not been scanned
+                for (int i = scanned; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        int end = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                        String line = decode(lineStart, end);
+                        lineStart = scanned = i + 1;
+                        return line;
+                    }
+                }
+                scanned = limit;
+
+                if (eof || isStopped()) {
+                    if (lineStart < limit) {
+                        String line = decode(lineStart, limit);
+                        lineStart = scanned = limit;
+                        return line;
+                    }
+                    return null;
+                }
+
+                // make room for more bytes
+                if (lineStart > 0) {
+                    System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart);
+                    limit -= lineStart;
+                    scanned -= lineStart;
+                    lineStart = 0;
+                }
+                else if (limit == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+
+                int n = in.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit));
+                if (n == -1) {
+                    eof = true;
+                }
+                else {
+                    limit += n;
+                }
+            }
+        }
+        catch (ClosedChannelException e) {
+            return null;
+        }
+        catch (IOException e) {
+            System.err.println("terminating engine; input encountered an IOException");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @NotNull
+    private String decode(int start, int end) {
+        // fast path for ASCII, which is a single copy into a compact string
+        for (int i = start; i < end; i++) {
+            if (bytes[i] < 0) {
+                return new String(bytes, start, end - start, charset);
+            }
+        }
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Writer that encodes characters into a reusable byte buffer, which is
+     * written to a channel when full or flushed.
+     */
+    private static final class ChannelWriter extends Writer {
+
+        @NotNull
+        private final WritableByteChannel channel;
+        @NotNull
+        private final CharsetEncoder encoder;
+        private final boolean closeChannel;
+        @NotNull
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        ChannelWriter(@NotNull WritableByteChannel channel, @NotNull Charset charset, boolean closeChannel) {
+            this.channel = channel;
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.closeChannel = closeChannel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            }
+            finally {
+                if (closeChannel) {
+                    channel.close();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            finally {
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void write(@SuppressWarnings("NullableProblems") char[] chars, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, chars.length);
+            int end = offset + length;
+            while (offset < end) {
+                char c = chars[offset];
+                if (c < 0x80) {
+                    if (!buffer.hasRemaining()) {
+                        flush();
+                    }
+                    buffer.put((byte) c);
+                    offset++;
+                }
+                else {
+                    // encode the run of non-ASCII characters, keeping surrogate pairs together
+                    int runEnd = offset + 1;
+                    while (runEnd < end && chars[runEnd] >= 0x80) {
+                        runEnd++;
+                    }
+                    CharBuffer run = CharBuffer.wrap(chars, offset, runEnd - offset);
+                    while (encoder.encode(run, buffer, true).isOverflow()) {
+                        flush();
+                    }
+                    while (encoder.flush(buffer).isOverflow()) {
+                        flush();
+                    }
+                    encoder.reset();
+                    offset = runEnd;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dk.martinu.commando;
+
+import java.lang.annotation.*;
+
+/**
+ * Describes a command class at compile time. The {@code commando} annotation
+ * processor validates the aliases and options of annotated classes and
+ * generates a {@code <Name>Descriptor} class in the same package, whose
+ * {@code create()} method returns the {@link CommandInfo} of the command
+ * without validating it again or instantiating the command reflectively.
+ * <p>
+ * Nested classes are named after their enclosing classes, separated by
+ * underscores, e.g. {@code Outer_InnerDescriptor}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Cmd {
+
+    String[] aliases();
+
+    Opt[] options() default {};
+
+    ArgsInfo args() default ArgsInfo.NONE;
+
+    /**
+     * Describes an option of a command, see {@link OptionInfo}.
+     */
+    @Documented
+    @Retention(RetentionPolicy.CLASS)
+    @Target({})
+    @interface Opt {
+
+        String name();
+
+        Option.Type type() default Option.Type.NONE;
+
+        boolean required() default false;
+
+        String description() default "";
+    }
+}
@@ -2,9 +2,11 @@ package dk.martinu.commando;
 
 import org.jetbrains.annotations.*;
 
+import java.lang.invoke.*;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.function.Supplier;
 
 public class CommandInfo {
 
@@ -18,12 +20,39 @@ public class CommandInfo {
     public final Set<OptionInfo> options;
     @NotNull
     public final ArgsInfo argsInfo;
+    // options mapped by their lower case name
+    @Unmodifiable
+    @NotNull
+    private final Map<String, OptionInfo> optionIndex;
+    // cached, as all components are immutable
+    private final int hash;
     private WeakReference<Command> ref = new WeakReference<>(null);
+    // created on first use; racing threads create equivalent factories
+    @Nullable
+    private volatile Supplier<? extends Command> factory = null;
 
     public CommandInfo(@NotNull Class<? extends Command> cls, @NotNull String... aliases) {
         this(cls, aliases, new OptionInfo[0], ArgsInfo.NONE);
     }
 
+    /**
+     * Returns a new command info without validating its arguments. This
+     * method is intended for descriptors generated from {@link Cmd}
+     * annotations, which are validated at compile time; {@code aliases} must
+     * be a non-empty array of distinct, valid names, {@code options} must not
+     * contain equal options, and neither array may be modified afterwards.
+     * Commands are created with {@code factory} instead of reflectively.
+     */
+    @Contract(value = "_, _, _, _, _ -> new", pure = true)
+    @NotNull
+    public static CommandInfo precompiled(@NotNull Class<? extends Command> cls,
+            @NotNull Supplier<? extends Command> factory, @NotNull String[] aliases,
+            @NotNull OptionInfo[] options, @NotNull ArgsInfo argsInfo) {
+        CommandInfo info = new CommandInfo(cls, OrderedSet.ofTrusted(aliases), OrderedSet.ofTrusted(options), argsInfo);
+        info.factory = factory;
+        return info;
+    }
+
     // FIXME aliases starting/ending with whitespace can never be called
     public CommandInfo(@NotNull Class<? extends Command> cls, @NotNull String[] aliases,
             @NotNull OptionInfo[] options, @NotNull ArgsInfo argsInfo) {
@@ -60,6 +89,8 @@ public class CommandInfo {
         }
 
         this.argsInfo = Objects.requireNonNull(argsInfo, "argsInfo is null");
+        this.optionIndex = indexOptions(this.options);
+        this.hash = computeHash();
     }
 
     private CommandInfo(@NotNull Class<? extends Command> cls, @NotNull Set<String> aliases,
@@ -68,6 +99,27 @@ public class CommandInfo {
         this.aliases = aliases;
         this.options = options;
         this.argsInfo = argsInfo;
+        this.optionIndex = indexOptions(options);
+        this.hash = computeHash();
+    }
+
+    @Contract(pure = true)
+    private int computeHash() {
+        int h = cls.hashCode();
+        h = 31 * h + aliases.hashCode();
+        h = 31 * h + options.hashCode();
+        return 31 * h + argsInfo.hashCode();
+    }
+
+    @Contract(pure = true)
+    @Unmodifiable
+    @NotNull
+    private static Map<String, OptionInfo> indexOptions(@NotNull Set<OptionInfo> options) {
+        HashMap<String, OptionInfo> map = new HashMap<>(options.size() * 2);
+        for (OptionInfo option : options) {
+            map.put(option.name().toLowerCase(Locale.ROOT), option);
+        }
+        return Map.copyOf(map);
     }
 
     @Contract(value = "null -> false", pure = true)
@@ -77,7 +129,8 @@ public class CommandInfo {
             return true;
         }
         else if (obj instanceof CommandInfo info) {
-            return cls.equals(info.cls)
+            return hash == info.hash
+                    && cls.equals(info.cls)
                     && aliases.equals(info.aliases)
                     && options.equals(info.options)
                     && argsInfo == info.argsInfo;
@@ -87,6 +140,12 @@ public class CommandInfo {
         }
     }
 
+    @Contract(pure = true)
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     @Contract(pure = true)
     @NotNull
     public String getName() {
@@ -94,16 +153,24 @@ public class CommandInfo {
         return aliases.stream().findFirst().get().toLowerCase(Locale.ROOT);
     }
 
+    /**
+     * Returns the option info with the specified name, ignoring case, or
+     * {@code null} if this command does not have such an option.
+     */
+    @Contract(pure = true)
+    @Nullable
+    public OptionInfo getOption(@NotNull String name) {
+        Objects.requireNonNull(name, "name is null");
+        // option names are ASCII, so lower case keys are equivalent to equalsIgnoreCase
+        return optionIndex.get(name.toLowerCase(Locale.ROOT));
+    }
+
     public void resolveOptions(@NotNull Collection<Option> options) throws CommandException, OptionException {
         Objects.requireNonNull(options, "options is null");
         for (Option option : options) {
-            // optional containing option info if present
-            Optional<OptionInfo> optional = this.options.stream()
-                    .filter(op -> op.name().equalsIgnoreCase(option.name))
-                    .findAny();
+            OptionInfo opInfo = getOption(option.name);
             // resolve option value so it is ready for command execution
-            if (optional.isPresent()) {
-                OptionInfo opInfo = optional.get();
+            if (opInfo != null) {
                 option.resolve(opInfo.type(), opInfo.required());
             }
             else {
@@ -121,31 +188,81 @@ public class CommandInfo {
         }
 
         // else create new instance
+        Supplier<? extends Command> factory = this.factory;
+        if (factory == null) {
+            this.factory = factory = createFactory();
+        }
+        try {
+            cmd = factory.get();
+        }
+        catch (RuntimeException e) {
+            throw new CommandException("failed to create command instance", e);
+        }
+        if (cmd == null) {
+            throw new CommandException("command instance is null for " + cls);
+        }
+
+        // cache instance if possible
+        if (!cmd.isVolatile()) {
+            ref.clear();
+            ref = new WeakReference<>(cmd);
+        }
+
+        return cmd;
+    }
+
+    /**
+     * Resolves the static instance method or public no-arg constructor of
+     * {@link #cls} once, and returns a supplier that invokes it directly.
+     */
+    @NotNull
+    private Supplier<? extends Command> createFactory() throws CommandException {
+        MethodHandle target;
         try {
+            // reflection assumes readability, method handles do not
+            CommandInfo.class.getModule().addReads(cls.getModule());
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
             if (StaticCommand.class.isAssignableFrom(cls)) {
                 Method m = cls.getMethod("getInstance");
                 if (!Modifier.isStatic(m.getModifiers())) {
                     throw new CommandException("missing static instance method for " + cls);
                 }
-                cmd = (StaticCommand) m.invoke(null);
+                target = lookup.unreflect(m);
             }
             else {
+                target = lookup.unreflectConstructor(cls.getConstructor());
+            }
+            if (!Command.class.isAssignableFrom(target.type().returnType())) {
+                throw new CommandException("instance method does not return a command for " + cls);
+            }
+
+            // spin a Supplier class that calls target directly
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                        target, target.type());
                 //noinspection unchecked
-                Constructor<Command> c = (Constructor<Command>) cls.getConstructor();
-                cmd = c.newInstance();
+                return (Supplier<? extends Command>) site.getTarget().invoke();
             }
+            catch (Throwable ignore) { }
         }
         catch (ReflectiveOperationException | SecurityException e) {
             throw new CommandException("failed to create command instance", e);
         }
 
-        // cache instance if possible
-        if (!cmd.isVolatile()) {
-            ref.clear();
-            ref = new WeakReference<>(cmd);
-        }
-
-        return cmd;
+        // fall back to invoking the method handle
+        MethodHandle handle = target.asType(MethodType.methodType(Command.class));
+        return () -> {
+            try {
+                return (Command) handle.invokeExact();
+            }
+            catch (RuntimeException | Error e) {
+                throw e;
+            }
+            catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        };
     }
 
     public static final class Builder {
@@ -0,0 +1,45 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * A service that provides commands without loading their classes. Engines
+ * register the aliases of provided commands up front, and call
+ * {@link #load(int)} the first time one of them is dispatched.
+ * <p>
+ * Providers are discovered with {@link java.util.ServiceLoader}, e.g. by
+ * declaring {@code provides dk.martinu.commando.CommandProvider with ...} in
+ * a module declaration. A provider for all {@link Cmd} classes in a
+ * compilation is generated if the {@code commando.provider} processor option
+ * is set to its fully qualified name.
+ *
+ * @see AbstractCliEngine#discoverCommands()
+ */
+public interface CommandProvider {
+
+    /**
+     * Returns the aliases of the command at the specified index. This method
+     * must not load the command class.
+     */
+    @NotNull
+    String[] getAliases(int index);
+
+    /**
+     * Returns the binary name of the command class at the specified index.
+     * This method must not load the command class.
+     */
+    @NotNull
+    String getClassName(int index);
+
+    /**
+     * Returns the number of provided commands.
+     */
+    @Contract(pure = true)
+    int getCount();
+
+    /**
+     * Loads the command at the specified index and returns its info.
+     */
+    @NotNull
+    CommandInfo load(int index);
+}
@@ -0,0 +1,627 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Registry of commands mapped by their aliases. The registry is published as
+ * an immutable, versioned snapshot; lookups read the current snapshot without
+ * locking, and writers build a new snapshot and swap it in atomically.
+ * <p>
+ * Commands of a {@link CommandProvider} are registered as stubs, which are
+ * linked, i.e. their command class is loaded and their aliases are mapped to
+ * the loaded {@link CommandInfo}, the first time one of their aliases is
+ * looked up.
+ * <p>
+ * Each snapshot has a sorted array of all aliases, which is merged with the
+ * added and removed aliases of an update rather than sorted again. Alias
+ * queries return views of that array in natural order.
+ */
+public final class CommandRegistry {
+
+    @NotNull
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot());
+
+    @Contract(pure = true)
+    public boolean containsClass(@NotNull Class<? extends Command> cls) {
+        Objects.requireNonNull(cls, "cls is null");
+        Snapshot s = snapshot.get();
+        return s.classes.containsKey(cls) || s.stubClasses.containsKey(cls.getName());
+    }
+
+    public boolean containsValue(@NotNull CommandInfo commandInfo) {
+        Objects.requireNonNull(commandInfo, "commandInfo is null");
+        Snapshot s = snapshot.get();
+        if (s.aliases.containsKey(commandInfo)) {
+            return true;
+        }
+        for (String alias : commandInfo.aliases) {
+            Stub stub = s.stubs.get(alias);
+            if (stub != null && stub.className.equals(commandInfo.cls.getName())) {
+                return commandInfo.equals(link(stub));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the command with the specified alias, or {@code null} if there
+     * is no such command. If the alias belongs to a stub, the stub is linked.
+     *
+     * @throws IllegalStateException if a stub cannot be linked
+     */
+    @Nullable
+    public CommandInfo get(@NotNull String alias) {
+        Objects.requireNonNull(alias, "alias is null");
+        Snapshot s = snapshot.get();
+        CommandInfo info = s.map.get(alias);
+        if (info == null && !s.stubs.isEmpty()) {
+            Stub stub = s.stubs.get(alias);
+            if (stub != null) {
+                info = link(stub);
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Returns all registered aliases, including those of stubs, in natural
+     * order.
+     */
+    @Unmodifiable
+    @NotNull
+    public List<String> getAliases() {
+        return snapshot.get().sortedList;
+    }
+
+    /**
+     * Returns the registered aliases that are greater than or equal to
+     * {@code from} and less than {@code to}, in natural order.
+     */
+    @Contract(pure = true)
+    @Unmodifiable
+    @NotNull
+    public List<String> getAliasesInRange(@NotNull String from, @NotNull String to) {
+        Objects.requireNonNull(from, "from is null");
+        Objects.requireNonNull(to, "to is null");
+        Snapshot s = snapshot.get();
+        int start = s.lowerBound(from);
+        return s.sortedList.subList(start, Math.max(start, s.lowerBound(to)));
+    }
+
+    /**
+     * Returns the registered aliases that start with {@code prefix}, in
+     * natural order.
+     */
+    @Contract(pure = true)
+    @Unmodifiable
+    @NotNull
+    public List<String> getAliasesWithPrefix(@NotNull String prefix) {
+        Objects.requireNonNull(prefix, "prefix is null");
+        Snapshot s = snapshot.get();
+        int start = s.lowerBound(prefix);
+        // aliases with the prefix are contiguous, starting at start
+        int low = start, high = s.sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (s.sorted[mid].startsWith(prefix)) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return s.sortedList.subList(start, low);
+    }
+
+    /**
+     * Returns the aliases that {@code commandInfo} is registered with, in no
+     * particular order. The list is empty if the command is not registered.
+     */
+    @Contract(pure = true)
+    @Unmodifiable
+    @NotNull
+    public List<String> getAliases(@NotNull CommandInfo commandInfo) {
+        Objects.requireNonNull(commandInfo, "commandInfo is null");
+        return snapshot.get().aliases.getOrDefault(commandInfo, List.of());
+    }
+
+    /**
+     * Returns the registered commands of the specified class, in no
+     * particular order. Stubs of the class are linked.
+     */
+    @Unmodifiable
+    @NotNull
+    public List<CommandInfo> getCommands(@NotNull Class<? extends Command> cls) {
+        Objects.requireNonNull(cls, "cls is null");
+        Snapshot s = snapshot.get();
+        if (s.stubClasses.containsKey(cls.getName())) {
+            HashSet<Stub> set = new HashSet<>();
+            s.stubs.forEach((alias, stub) -> {
+                if (stub.className.equals(cls.getName())) {
+                    set.add(stub);
+                }
+            });
+            link(set);
+            s = snapshot.get();
+        }
+        PersistentMap<CommandInfo, CommandInfo> infos = s.classes.get(cls);
+        if (infos == null) {
+            return List.of();
+        }
+        CommandInfo[] array = new CommandInfo[infos.size()];
+        int[] i = {0};
+        infos.forEach((info, ignore) -> array[i[0]++] = info);
+        return List.of(array);
+    }
+
+    /**
+     * Returns all commands mapped by their aliases, ordered by alias. All
+     * stubs are linked; use {@link #getAliases()} to avoid loading command
+     * classes.
+     */
+    @Unmodifiable
+    @NotNull
+    public List<CommandEntry> getEntries() {
+        Snapshot s = snapshot.get();
+        if (!s.stubs.isEmpty()) {
+            HashSet<Stub> set = new HashSet<>();
+            s.stubs.forEach((alias, stub) -> set.add(stub));
+            link(set);
+            s = snapshot.get();
+        }
+        return s.entries();
+    }
+
+    @Contract(pure = true)
+    public long getVersion() {
+        return snapshot.get().version;
+    }
+
+    public void put(@NotNull CommandInfo commandInfo) {
+        Objects.requireNonNull(commandInfo, "commandInfo is null");
+        update(edit -> {
+            commandInfo.aliases.forEach(alias -> {
+                CommandInfo prev = edit.put(alias, commandInfo);
+                if (prev != null && !prev.cls.equals(commandInfo.cls)) {
+                    // TODO log warning or throw when alias is replaced
+                }
+            });
+        });
+    }
+
+    /**
+     * Registers a stub for each command of {@code provider}. Command classes
+     * are not loaded until the command is looked up.
+     */
+    public void putLazy(@NotNull CommandProvider provider) {
+        Objects.requireNonNull(provider, "provider is null");
+        int count = provider.getCount();
+        Stub[] array = new Stub[count];
+        for (int i = 0; i < count; i++) {
+            array[i] = new Stub(provider, i);
+        }
+        update(edit -> {
+            for (Stub stub : array) {
+                for (String alias : stub.aliases) {
+                    edit.putStub(alias, stub);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the command with the specified alias and returns it, or
+     * returns {@code null} if there is no such command. If the alias belongs
+     * to a stub, the stub is removed without loading its command class, and
+     * {@code null} is returned unless the command was already loaded.
+     */
+    @Nullable
+    public CommandInfo remove(@NotNull String alias) {
+        Objects.requireNonNull(alias, "alias is null");
+        Snapshot prev = update(edit -> edit.remove(alias));
+        CommandInfo info = prev.map.get(alias);
+        if (info == null) {
+            Stub stub = prev.stubs.get(alias);
+            if (stub != null) {
+                info = stub.info;
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Loads the command of {@code stub} and maps those of its aliases that
+     * are still mapped to the stub to the loaded command.
+     */
+    @NotNull
+    private CommandInfo link(@NotNull Stub stub) {
+        CommandInfo info = stub.load();
+        update(edit -> {
+            for (String alias : stub.aliases) {
+                if (edit.stubs.get(alias) == stub) {
+                    edit.put(alias, info);
+                }
+            }
+        });
+        return info;
+    }
+
+    /**
+     * Loads the commands of all {@code stubs} and then maps, in a single
+     * update, those of their aliases that are still mapped to a stub to the
+     * loaded commands.
+     */
+    private void link(@NotNull Collection<Stub> stubs) {
+        if (stubs.isEmpty()) {
+            return;
+        }
+        for (Stub stub : stubs) {
+            stub.load();
+        }
+        update(edit -> {
+            for (Stub stub : stubs) {
+                CommandInfo info = stub.load();
+                for (String alias : stub.aliases) {
+                    if (edit.stubs.get(alias) == stub) {
+                        edit.put(alias, info);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies {@code function} to an edit of the current snapshot and
+     * publishes the result as a new snapshot. The function may be invoked
+     * more than once if other writers publish concurrently. Returns the
+     * snapshot that was replaced.
+     */
+    @NotNull
+    private Snapshot update(@NotNull Consumer<Edit> function) {
+        Snapshot prev, next;
+        do {
+            prev = snapshot.get();
+            Edit edit = new Edit(prev);
+            function.accept(edit);
+            next = edit.toSnapshot(prev);
+        }
+        while (!snapshot.compareAndSet(prev, next));
+        return prev;
+    }
+
+    /**
+     * An immutable state of the registry. The mappings and reverse indices
+     * are persistent maps, so a snapshot shares most of its structure with
+     * the snapshot it was derived from.
+     */
+    private static final class Snapshot {
+
+        @NotNull
+        final PersistentMap<String, CommandInfo> map;
+        @NotNull
+        final PersistentMap<String, Stub> stubs;
+        final long version;
+        // reverse indices of map
+        @NotNull
+        final PersistentMap<CommandInfo, List<String>> aliases;
+        // commands of each class, as a set
+        @NotNull
+        final PersistentMap<Class<? extends Command>, PersistentMap<CommandInfo, CommandInfo>> classes;
+        // number of stub aliases of each stub class name
+        @NotNull
+        final PersistentMap<String, Integer> stubClasses;
+        // all aliases of map and stubs in natural order; never modified
+        @NotNull
+        final String[] sorted;
+        @Unmodifiable
+        @NotNull
+        final List<String> sortedList;
+        // lazily computed; racing threads compute equal, immutable lists
+        @Nullable
+        private List<CommandEntry> entries = null;
+
+        Snapshot() {
+            this(PersistentMap.empty(), PersistentMap.empty(), PersistentMap.empty(), PersistentMap.empty(),
+                    PersistentMap.empty(), new String[0], 0L);
+        }
+
+        Snapshot(@NotNull PersistentMap<String, CommandInfo> map, @NotNull PersistentMap<String, Stub> stubs,
+                @NotNull PersistentMap<CommandInfo, List<String>> aliases,
+                @NotNull PersistentMap<Class<? extends Command>, PersistentMap<CommandInfo, CommandInfo>> classes,
+                @NotNull PersistentMap<String, Integer> stubClasses, @NotNull String[] sorted, long version) {
+            this.map = map;
+            this.stubs = stubs;
+            this.aliases = aliases;
+            this.classes = classes;
+            this.stubClasses = stubClasses;
+            this.sorted = sorted;
+            this.sortedList = Collections.unmodifiableList(Arrays.asList(sorted));
+            this.version = version;
+        }
+
+        @Unmodifiable
+        @NotNull
+        List<CommandEntry> entries() {
+            List<CommandEntry> list = entries;
+            if (list == null) {
+                CommandEntry[] array = new CommandEntry[map.size()];
+                int i = 0;
+                for (String alias : sorted) {
+                    CommandInfo info = map.get(alias);
+                    if (info != null) {
+                        array[i++] = new CommandEntry(alias, info);
+                    }
+                }
+                entries = list = List.of(array);
+            }
+            return list;
+        }
+
+        /**
+         * Returns the index of the first alias that is not less than
+         * {@code key}.
+         */
+        @Contract(pure = true)
+        int lowerBound(@NotNull String key) {
+            int low = 0, high = sorted.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Changes to the mappings, stubs and reverse indices of a snapshot, which
+     * record the aliases that are added and removed. Each change replaces a
+     * persistent map, so an edit costs {@code O(log n)} per alias rather than
+     * a copy of the registry.
+     */
+    private static final class Edit {
+
+        @NotNull
+        PersistentMap<String, CommandInfo> map;
+        @NotNull
+        PersistentMap<String, Stub> stubs;
+        @NotNull
+        private PersistentMap<CommandInfo, List<String>> aliases;
+        @NotNull
+        private PersistentMap<Class<? extends Command>, PersistentMap<CommandInfo, CommandInfo>> classes;
+        @NotNull
+        private PersistentMap<String, Integer> stubClasses;
+        @NotNull
+        private final HashSet<String> added = new HashSet<>();
+        @NotNull
+        private final HashSet<String> removed = new HashSet<>();
+
+        Edit(@NotNull Snapshot snapshot) {
+            map = snapshot.map;
+            stubs = snapshot.stubs;
+            aliases = snapshot.aliases;
+            classes = snapshot.classes;
+            stubClasses = snapshot.stubClasses;
+        }
+
+        @Nullable
+        CommandInfo put(@NotNull String alias, @NotNull CommandInfo info) {
+            boolean present = removeStub(alias);
+            CommandInfo prev = map.get(alias);
+            if (prev == info) {
+                return prev;
+            }
+            map = map.put(alias, info);
+            if (prev != null) {
+                unindex(alias, prev);
+            }
+            index(alias, info);
+            if (!present && prev == null) {
+                added(alias);
+            }
+            return prev;
+        }
+
+        void putStub(@NotNull String alias, @NotNull Stub stub) {
+            boolean present = removeMapping(alias);
+            Stub prev = stubs.get(alias);
+            if (prev == stub) {
+                return;
+            }
+            if (prev != null) {
+                removeStub(alias);
+            }
+            stubs = stubs.put(alias, stub);
+            Integer count = stubClasses.get(stub.className);
+            stubClasses = stubClasses.put(stub.className, count != null ? count + 1 : 1);
+            if (prev == null && !present) {
+                added(alias);
+            }
+        }
+
+        void remove(@NotNull String alias) {
+            boolean present = removeMapping(alias);
+            if (removeStub(alias) || present) {
+                if (!added.remove(alias)) {
+                    removed.add(alias);
+                }
+            }
+        }
+
+        /**
+         * Returns a snapshot of this edit, given the snapshot it was created
+         * from.
+         */
+        @NotNull
+        Snapshot toSnapshot(@NotNull Snapshot prev) {
+            return new Snapshot(map, stubs, aliases, classes, stubClasses, merge(prev.sorted), prev.version + 1);
+        }
+
+        private void added(@NotNull String alias) {
+            if (!removed.remove(alias)) {
+                added.add(alias);
+            }
+        }
+
+        private void index(@NotNull String alias, @NotNull CommandInfo info) {
+            List<String> list = aliases.get(info);
+            if (list == null) {
+                aliases = aliases.put(info, List.of(alias));
+                PersistentMap<CommandInfo, CommandInfo> infos = classes.getOrDefault(info.cls, PersistentMap.empty());
+                classes = classes.put(info.cls, infos.put(info, info));
+            }
+            else {
+                String[] array = list.toArray(new String[list.size() + 1]);
+                array[list.size()] = alias;
+                aliases = aliases.put(info, List.of(array));
+            }
+        }
+
+        /**
+         * Returns the sorted aliases after this edit, given the sorted
+         * aliases before it. Removed aliases and insertion points are found
+         * by binary search, and the unchanged ranges between them are copied.
+         */
+        @NotNull
+        private String[] merge(@NotNull String[] sorted) {
+            if (added.isEmpty() && removed.isEmpty()) {
+                return sorted;
+            }
+            String[] source = sorted;
+            if (!removed.isEmpty()) {
+                int[] indices = new int[removed.size()];
+                int n = 0;
+                for (String alias : removed) {
+                    indices[n++] = Arrays.binarySearch(sorted, alias);
+                }
+                Arrays.sort(indices);
+                source = new String[sorted.length - indices.length];
+                int from = 0, k = 0;
+                for (int index : indices) {
+                    System.arraycopy(sorted, from, source, k, index - from);
+                    k += index - from;
+                    from = index + 1;
+                }
+                System.arraycopy(sorted, from, source, k, sorted.length - from);
+            }
+            if (added.isEmpty()) {
+                return source;
+            }
+            String[] add = added.toArray(new String[0]);
+            Arrays.sort(add);
+            String[] result = new String[source.length + add.length];
+            int from = 0, k = 0;
+            for (String alias : add) {
+                // added aliases are not in source
+                int index = -(Arrays.binarySearch(source, from, source.length, alias) + 1);
+                System.arraycopy(source, from, result, k, index - from);
+                k += index - from;
+                result[k++] = alias;
+                from = index;
+            }
+            System.arraycopy(source, from, result, k, source.length - from);
+            return result;
+        }
+
+        // removes the mapping of alias, returning true if there was one
+        private boolean removeMapping(@NotNull String alias) {
+            CommandInfo prev = map.get(alias);
+            if (prev == null) {
+                return false;
+            }
+            map = map.remove(alias);
+            unindex(alias, prev);
+            return true;
+        }
+
+        // removes the stub of alias, returning true if there was one
+        private boolean removeStub(@NotNull String alias) {
+            Stub prev = stubs.get(alias);
+            if (prev == null) {
+                return false;
+            }
+            stubs = stubs.remove(alias);
+            int count = stubClasses.getOrDefault(prev.className, 1);
+            stubClasses = count > 1 ? stubClasses.put(prev.className, count - 1) : stubClasses.remove(prev.className);
+            return true;
+        }
+
+        private void unindex(@NotNull String alias, @NotNull CommandInfo info) {
+            List<String> list = aliases.getOrDefault(info, List.of());
+            if (list.size() <= 1) {
+                aliases = aliases.remove(info);
+                PersistentMap<CommandInfo, CommandInfo> infos = classes.getOrDefault(info.cls, PersistentMap.empty())
+                        .remove(info);
+                classes = infos.isEmpty() ? classes.remove(info.cls) : classes.put(info.cls, infos);
+            }
+            else {
+                String[] array = new String[list.size() - 1];
+                int i = 0;
+                for (String a : list) {
+                    if (!a.equals(alias)) {
+                        array[i++] = a;
+                    }
+                }
+                aliases = aliases.put(info, List.of(array));
+            }
+        }
+    }
+
+    /**
+     * A command of a provider that has not been loaded yet.
+     */
+    private static final class Stub {
+
+        @NotNull
+        final CommandProvider provider;
+        final int index;
+        @NotNull
+        final String className;
+        @NotNull
+        final String[] aliases;
+        @Nullable
+        private volatile CommandInfo info = null;
+
+        Stub(@NotNull CommandProvider provider, int index) {
+            this.provider = provider;
+            this.index = index;
+            className = Objects.requireNonNull(provider.getClassName(index), "class name is null");
+            aliases = Objects.requireNonNull(provider.getAliases(index), "aliases array is null").clone();
+            for (String alias : aliases) {
+                Objects.requireNonNull(alias, "aliases array contains null elements");
+            }
+        }
+
+        /**
+         * Returns the loaded command of this stub, loading it on the first
+         * invocation.
+         */
+        @NotNull
+        CommandInfo load() {
+            CommandInfo info = this.info;
+            if (info == null) {
+                synchronized (this) {
+                    info = this.info;
+                    if (info == null) {
+                        try {
+                            info = Objects.requireNonNull(provider.load(index), "provider returned null");
+                        }
+                        catch (RuntimeException | LinkageError e) {
+                            throw new IllegalStateException("failed to load command " + className, e);
+                        }
+                        this.info = info;
+                    }
+                }
+            }
+            return info;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Per-command invocation counters and latency histograms. Recording is
+ * lock-free; each command has a {@link Recorder} with one
+ * {@link Histogram} per {@link Phase} of command execution.
+ * <p>
+ * Statistics are disabled by default, so dispatching a command does not pay
+ * for timing and recording it; see {@link #setEnabled(boolean)}.
+ */
+public final class CommandStats {
+
+    @NotNull
+    private final ConcurrentHashMap<CommandInfo, Recorder> recorders = new ConcurrentHashMap<>();
+    private volatile boolean enabled = false;
+
+    @Contract(pure = true)
+    @Nullable
+    public Recorder get(@NotNull CommandInfo commandInfo) {
+        Objects.requireNonNull(commandInfo, "commandInfo is null");
+        return recorders.get(commandInfo);
+    }
+
+    /**
+     * Returns the recorders of all commands that have been recorded, ordered
+     * by command name.
+     */
+    @NotNull
+    public List<Recorder> getRecorders() {
+        List<Recorder> list = new ArrayList<>(recorders.values());
+        list.sort(Comparator.comparing(recorder -> recorder.commandInfo.getName()));
+        return list;
+    }
+
+    @Contract(pure = true)
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the recorder for the specified command, creating it if needed.
+     */
+    @NotNull
+    public Recorder recorder(@NotNull CommandInfo commandInfo) {
+        Objects.requireNonNull(commandInfo, "commandInfo is null");
+        Recorder recorder = recorders.get(commandInfo);
+        if (recorder == null) {
+            recorder = recorders.computeIfAbsent(commandInfo, Recorder::new);
+        }
+        return recorder;
+    }
+
+    /**
+     * Discards all recorded statistics.
+     */
+    public void reset() {
+        recorders.clear();
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Phases of executing a command line.
+     */
+    public enum Phase {
+
+        /**
+         * Tokenizing the arguments into parameters.
+         */
+        PARSE,
+        /**
+         * Resolving option values.
+         */
+        RESOLVE,
+        /**
+         * Getting or creating the command instance.
+         */
+        INSTANTIATE,
+        /**
+         * Executing the command.
+         */
+        EXECUTE;
+
+        @Contract(pure = true)
+        @NotNull
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Statistics of a single command.
+     */
+    public static final class Recorder {
+
+        @NotNull
+        public final CommandInfo commandInfo;
+        @NotNull
+        private final LongAdder calls = new LongAdder();
+        @NotNull
+        private final LongAdder errors = new LongAdder();
+        @NotNull
+        private final Histogram[] histograms = new Histogram[Phase.values().length];
+
+        private Recorder(@NotNull CommandInfo commandInfo) {
+            this.commandInfo = commandInfo;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+
+        @Contract(pure = true)
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        @Contract(pure = true)
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Contract(pure = true)
+        @NotNull
+        public Histogram getHistogram(@NotNull Phase phase) {
+            return histograms[phase.ordinal()];
+        }
+
+        /**
+         * Counts a completed invocation.
+         */
+        public void recordCall(boolean error) {
+            calls.increment();
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        /**
+         * Records the duration of a phase in nanoseconds.
+         */
+        public void recordPhase(@NotNull Phase phase, long nanos) {
+            histograms[phase.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * A lock-free histogram of non-negative values. Values below 8 are
+     * counted exactly; larger values are counted in buckets of 8 per power
+     * of two, so percentiles are accurate to within 12.5%.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        @Contract(pure = true)
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+        }
+
+        /**
+         * Returns the largest value that is counted in the specified bucket.
+         */
+        @Contract(pure = true)
+        private static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+            long lower = mantissa << (exponent - SUB_BUCKET_BITS);
+            return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+
+        @NotNull
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        @NotNull
+        private final LongAdder count = new LongAdder();
+        @NotNull
+        private final LongAdder sum = new LongAdder();
+        @NotNull
+        private final AtomicLong max = new AtomicLong();
+
+        @Contract(pure = true)
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Contract(pure = true)
+        public long getMax() {
+            return max.get();
+        }
+
+        @Contract(pure = true)
+        public double getMean() {
+            long n = count.sum();
+            return n != 0L ? (double) sum.sum() / n : 0.0;
+        }
+
+        /**
+         * Returns an upper bound of the specified percentile of the recorded
+         * values, or {@code 0} if no values have been recorded.
+         *
+         * @param percentile the percentile, between 0 and 100 (inclusive)
+         */
+        @Contract(pure = true)
+        public long getPercentile(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("percentile is out of range {" + percentile + "}");
+            }
+            long[] snapshot = new long[BUCKETS];
+            long total = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += snapshot[i] = counts.get(i);
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * total));
+            long cumulative = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative += snapshot[i];
+                if (cumulative >= rank) {
+                    return Math.min(upperBoundOf(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        public void record(long value) {
+            if (value < 0L) {
+                value = 0L;
+            }
+            counts.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+            long prev;
+            while (value > (prev = max.get()) && !max.compareAndSet(prev, value)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
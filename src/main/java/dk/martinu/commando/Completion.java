@@ -0,0 +1,41 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Candidates for completing the word of a line that ends at the cursor.
+ *
+ * @param start      index in the line of the first character of the word
+ * @param candidates words that start with the word, in natural order
+ * @see AbstractCliEngine#complete(String, int)
+ */
+public record Completion(int start, @Unmodifiable @NotNull List<String> candidates) {
+
+    public Completion {
+        Objects.requireNonNull(candidates, "candidates is null");
+    }
+
+    /**
+     * Returns the longest prefix that all candidates share, or an empty
+     * string if there are no candidates.
+     */
+    @Contract(pure = true)
+    @NotNull
+    public String commonPrefix() {
+        if (candidates.isEmpty()) {
+            return "";
+        }
+        // candidates are sorted, so the first and last differ the most
+        String first = candidates.get(0);
+        String last = candidates.get(candidates.size() - 1);
+        int length = Math.min(first.length(), last.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == last.charAt(i)) {
+            i++;
+        }
+        return first.substring(0, i);
+    }
+}
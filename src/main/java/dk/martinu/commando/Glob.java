@@ -0,0 +1,247 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled glob pattern that matches entire character sequences, ignoring
+ * case. The following syntax is supported:
+ * <ul>
+ *     <li>{@code *} matches any number of characters</li>
+ *     <li>{@code ?} matches a single character</li>
+ *     <li>{@code [abc]} and {@code [a-z]} match a single character in the
+ *     class; the class is negated if it starts with {@code !} or {@code ^}</li>
+ *     <li>{@code \} escapes the next character</li>
+ * </ul>
+ * All other characters match themselves. Instances are immutable and can be
+ * shared across threads.
+ */
+public final class Glob {
+
+    private static final int CACHE_SIZE = 256;
+    // compiled patterns by pattern string; cleared when full
+    private static final ConcurrentHashMap<String, Glob> cache = new ConcurrentHashMap<>();
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY = 1;
+    private static final byte STAR = 2;
+    private static final byte CLASS = 3;
+    private static final byte NEGATED_CLASS = 4;
+
+    /**
+     * Returns a compiled glob of the specified pattern. Compiled globs are
+     * cached by their pattern.
+     *
+     * @throws IllegalArgumentException if the pattern is malformed
+     */
+    @NotNull
+    public static Glob compile(@NotNull String pattern) {
+        Objects.requireNonNull(pattern, "pattern is null");
+        Glob glob = cache.get(pattern);
+        if (glob == null) {
+            glob = new Glob(pattern);
+            if (cache.size() >= CACHE_SIZE) {
+                cache.clear();
+            }
+            Glob prev = cache.putIfAbsent(pattern, glob);
+            if (prev != null) {
+                glob = prev;
+            }
+        }
+        return glob;
+    }
+
+    @Contract(pure = true)
+    private static boolean equalsIgnoreCase(char a, char b) {
+        if (a == b) {
+            return true;
+        }
+        char ua = Character.toUpperCase(a);
+        char ub = Character.toUpperCase(b);
+        return ua == ub || Character.toLowerCase(ua) == Character.toLowerCase(ub);
+    }
+
+    @Contract(pure = true)
+    private static boolean inClass(@NotNull char[] ranges, char c) {
+        return inRanges(ranges, c)
+                || inRanges(ranges, Character.toUpperCase(c))
+                || inRanges(ranges, Character.toLowerCase(c));
+    }
+
+    @Contract(pure = true)
+    private static boolean inRanges(@NotNull char[] ranges, char c) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (c >= ranges[i] && c <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    public final String pattern;
+    // one operation per token; consecutive stars are collapsed
+    @NotNull
+    private final byte[] ops;
+    // literal character of each LITERAL token
+    @NotNull
+    private final char[] literals;
+    // inclusive bounds of each CLASS and NEGATED_CLASS token, in pairs
+    @NotNull
+    private final char[][] ranges;
+    // number of tokens that match a single character
+    private final int minLength;
+    private final boolean hasStar;
+
+    private Glob(@NotNull String pattern) {
+        this.pattern = pattern;
+        int length = pattern.length();
+        byte[] ops = new byte[length];
+        char[] literals = new char[length];
+        char[][] ranges = new char[length][];
+        int n = 0;
+        int minLength = 0;
+        boolean hasStar = false;
+        for (int i = 0; i < length; i++) {
+            char c = pattern.charAt(i);
+            switch (c) {
+                case '*' -> {
+                    if (n == 0 || ops[n - 1] != STAR) {
+                        ops[n++] = STAR;
+                    }
+                    hasStar = true;
+                    continue;
+                }
+                case '?' -> ops[n] = ANY;
+                case '[' -> {
+                    int start = i++;
+                    boolean negated = i < length && (pattern.charAt(i) == '!' || pattern.charAt(i) == '^');
+                    if (negated) {
+                        i++;
+                    }
+                    char[] bounds = new char[8];
+                    int count = 0;
+                    // a closing bracket is a literal if it is the first character
+                    boolean first = true;
+                    while (i < length && (pattern.charAt(i) != ']' || first)) {
+                        char lo = pattern.charAt(i);
+                        if (lo == '\\' && i + 1 < length) {
+                            lo = pattern.charAt(++i);
+                        }
+                        char hi = lo;
+                        if (i + 2 < length && pattern.charAt(i + 1) == '-' && pattern.charAt(i + 2) != ']') {
+                            i += 2;
+                            hi = pattern.charAt(i);
+                            if (hi == '\\' && i + 1 < length) {
+                                hi = pattern.charAt(++i);
+                            }
+                            if (hi < lo) {
+                                throw new IllegalArgumentException("invalid character range at index " + (i - 2));
+                            }
+                        }
+                        if (count == bounds.length) {
+                            bounds = Arrays.copyOf(bounds, count * 2);
+                        }
+                        bounds[count++] = lo;
+                        bounds[count++] = hi;
+                        first = false;
+                        i++;
+                    }
+                    if (i == length) {
+                        throw new IllegalArgumentException("unclosed character class at index " + start);
+                    }
+                    ops[n] = negated ? NEGATED_CLASS : CLASS;
+                    ranges[n] = Arrays.copyOf(bounds, count);
+                }
+                case '\\' -> {
+                    if (++i == length) {
+                        throw new IllegalArgumentException("missing escaped character at index " + (i - 1));
+                    }
+                    ops[n] = LITERAL;
+                    literals[n] = pattern.charAt(i);
+                }
+                default -> {
+                    ops[n] = LITERAL;
+                    literals[n] = c;
+                }
+            }
+            n++;
+            minLength++;
+        }
+        this.ops = Arrays.copyOf(ops, n);
+        this.literals = Arrays.copyOf(literals, n);
+        this.ranges = Arrays.copyOf(ranges, n);
+        this.minLength = minLength;
+        this.hasStar = hasStar;
+    }
+
+    @Contract(value = "null -> false", pure = true)
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return obj instanceof Glob glob && pattern.equals(glob.pattern);
+    }
+
+    @Contract(pure = true)
+    @Override
+    public int hashCode() {
+        return pattern.hashCode();
+    }
+
+    /**
+     * Returns {@code true} if the entire sequence matches this glob, ignoring
+     * case, otherwise {@code false}.
+     */
+    @Contract(pure = true)
+    public boolean matches(@NotNull CharSequence seq) {
+        Objects.requireNonNull(seq, "seq is null");
+        int length = seq.length();
+        if (length < minLength || (!hasStar && length != minLength)) {
+            return false;
+        }
+        // greedy matching that backtracks to the last star
+        int p = 0, i = 0;
+        int starP = -1, starI = 0;
+        while (i < length) {
+            if (p < ops.length && ops[p] != STAR && matchesOne(p, seq.charAt(i))) {
+                p++;
+                i++;
+            }
+            else if (p < ops.length && ops[p] == STAR) {
+                starP = p++;
+                starI = i;
+            }
+            else if (starP != -1) {
+                p = starP + 1;
+                i = ++starI;
+            }
+            else {
+                return false;
+            }
+        }
+        while (p < ops.length && ops[p] == STAR) {
+            p++;
+        }
+        return p == ops.length;
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    @Contract(pure = true)
+    private boolean matchesOne(int p, char c) {
+        return switch (ops[p]) {
+            case LITERAL -> equalsIgnoreCase(literals[p], c);
+            case ANY -> true;
+            case CLASS -> inClass(ranges[p], c);
+            case NEGATED_CLASS -> !inClass(ranges[p], c);
+            default -> false;
+        };
+    }
+}
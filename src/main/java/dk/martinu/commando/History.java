@@ -0,0 +1,293 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A bounded history of input lines, kept in a ring buffer. Lines are
+ * numbered from 1 in the order they are added; when the history is full,
+ * the oldest line is dropped.
+ * <p>
+ * Substring searches are answered with an index of the trigrams of every
+ * line, so only lines that contain the rarest trigram of the search string
+ * are compared. Searches ignore case.
+ * <p>
+ * A history that is {@link #open(Path, int) opened} from a file appends
+ * every added line to the file through a {@link BatchingWriter}, so adding
+ * lines does not wait for the file to be written.
+ */
+public final class History implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * Returns a new history of the last {@code capacity} lines in
+     * {@code file}, which appends added lines to the file. The file is
+     * created if it does not exist.
+     */
+    @NotNull
+    public static History open(@NotNull Path file, int capacity) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        History history = new History(capacity);
+        if (Files.exists(file)) {
+            // malformed input is replaced rather than thrown
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        history.append(line);
+                    }
+                }
+            }
+        }
+        history.rebuildIndex();
+        history.writer = new BatchingWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+        return history;
+    }
+
+    @Contract(pure = true)
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    @Contract(pure = true)
+    private static long trigram(@NotNull String s, int i) {
+        return (long) fold(s.charAt(i)) << 32 | (long) fold(s.charAt(i + 1)) << 16 | fold(s.charAt(i + 2));
+    }
+
+    @Contract(pure = true)
+    private static boolean containsIgnoreCase(@NotNull String line, @NotNull String s) {
+        for (int i = 0, end = line.length() - s.length(); i <= end; i++) {
+            if (line.regionMatches(true, i, s, 0, s.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final int capacity;
+    // line number n - 1 is stored at index (n - 1) % capacity
+    @NotNull
+    private final String[] lines;
+    // lines that contain each trigram, by ascending line number - 1
+    @NotNull
+    private final HashMap<Long, Postings> index = new HashMap<>();
+    // number of lines added
+    private int count = 0;
+    // index may contain dropped lines before this line number - 1
+    private int indexedFrom = 0;
+    @Nullable
+    private BatchingWriter writer = null;
+
+    public History(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive {" + capacity + "}");
+        }
+        this.capacity = capacity;
+        lines = new String[capacity];
+    }
+
+    /**
+     * Adds a line to this history, and appends it to the history file if
+     * there is one. If the file cannot be written, the error is printed and
+     * the file is no longer written to. Line terminators in the line are
+     * replaced with spaces.
+     */
+    public synchronized void add(@NotNull String line) {
+        Objects.requireNonNull(line, "line is null");
+        if (line.indexOf('\n') != -1 || line.indexOf('\r') != -1) {
+            line = line.replace('\n', ' ').replace('\r', ' ');
+        }
+        append(line);
+        addPostings(count - 1, line);
+        // rebuild when the index holds as many dropped lines as lines
+        if (count - capacity - indexedFrom >= capacity) {
+            rebuildIndex();
+        }
+        if (writer != null) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+            }
+            catch (IOException e) {
+                System.err.println("history file is no longer written; it encountered an IOException");
+                e.printStackTrace();
+                writer = null;
+            }
+        }
+    }
+
+    /**
+     * Writes all lines to the history file, if there is one, and closes it.
+     * Lines can still be added afterwards, but are not written to the file.
+     */
+    @Override
+    public void close() throws IOException {
+        BatchingWriter writer;
+        synchronized (this) {
+            writer = this.writer;
+            this.writer = null;
+        }
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Requests that added lines are written to the history file, without
+     * waiting for them to be written.
+     */
+    public synchronized void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            }
+            catch (IOException ignore) {
+                // thrown again when the next line is added
+            }
+        }
+    }
+
+    /**
+     * Returns the line with the specified number, or {@code null} if it has
+     * been dropped or not added yet.
+     */
+    @Contract(pure = true)
+    @Nullable
+    public synchronized String get(int number) {
+        if (number <= first() || number > count) {
+            return null;
+        }
+        return lines[(number - 1) % capacity];
+    }
+
+    @Contract(pure = true)
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the last {@code limit} lines, oldest first.
+     */
+    @NotNull
+    public synchronized List<Entry> getLast(int limit) {
+        int from = Math.max(first(), count - Math.max(0, limit));
+        List<Entry> list = new ArrayList<>(count - from);
+        for (int i = from; i < count; i++) {
+            list.add(new Entry(i + 1, lines[i % capacity]));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the last {@code limit} lines that contain {@code s}, ignoring
+     * case, oldest first.
+     */
+    @NotNull
+    public synchronized List<Entry> search(@NotNull String s, int limit) {
+        Objects.requireNonNull(s, "s is null");
+        ArrayList<Entry> list = new ArrayList<>();
+        int first = first();
+        if (s.length() < 3) {
+            for (int i = count - 1; i >= first && list.size() < limit; i--) {
+                String line = lines[i % capacity];
+                if (containsIgnoreCase(line, s)) {
+                    list.add(new Entry(i + 1, line));
+                }
+            }
+        }
+        else {
+            // only lines with the rarest trigram of s can contain s
+            Postings rarest = null;
+            for (int i = 0; i + 3 <= s.length(); i++) {
+                Postings postings = index.get(trigram(s, i));
+                if (postings == null) {
+                    return List.of();
+                }
+                if (rarest == null || postings.size < rarest.size) {
+                    rarest = postings;
+                }
+            }
+            for (int k = rarest.size - 1; k >= 0 && list.size() < limit; k--) {
+                int i = rarest.values[k];
+                if (i < first) {
+                    break;
+                }
+                String line = lines[i % capacity];
+                if (containsIgnoreCase(line, s)) {
+                    list.add(new Entry(i + 1, line));
+                }
+            }
+        }
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * Returns the number of lines in this history.
+     */
+    @Contract(pure = true)
+    public synchronized int size() {
+        return count - first();
+    }
+
+    private void addPostings(int i, @NotNull String line) {
+        for (int k = 0; k + 3 <= line.length(); k++) {
+            index.computeIfAbsent(trigram(line, k), key -> new Postings()).add(i);
+        }
+    }
+
+    private void append(@NotNull String line) {
+        if (count == Integer.MAX_VALUE) {
+            throw new IllegalStateException("history is exhausted");
+        }
+        lines[count % capacity] = line;
+        count++;
+    }
+
+    // index of the oldest line that has not been dropped
+    @Contract(pure = true)
+    private int first() {
+        return Math.max(0, count - capacity);
+    }
+
+    private void rebuildIndex() {
+        index.clear();
+        indexedFrom = first();
+        for (int i = indexedFrom; i < count; i++) {
+            addPostings(i, lines[i % capacity]);
+        }
+    }
+
+    /**
+     * A numbered line of a history.
+     */
+    public record Entry(int number, @NotNull String line) { }
+
+    /**
+     * Growable array of ascending line indices without duplicates.
+     */
+    private static final class Postings {
+
+        @NotNull
+        int[] values = new int[4];
+        int size = 0;
+
+        void add(int value) {
+            // a trigram can occur more than once in a line
+            if (size != 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
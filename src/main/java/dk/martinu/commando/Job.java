@@ -0,0 +1,84 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * A command line executing in the background of an engine.
+ *
+ * @see AbstractCliEngine#submit(String)
+ */
+public final class Job {
+
+    public final int id;
+    @NotNull
+    public final String line;
+    @NotNull
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    @Nullable
+    volatile Future<?> task = null;
+
+    Job(int id, @NotNull String line) {
+        this.id = id;
+        this.line = Objects.requireNonNull(line, "line is null");
+    }
+
+    /**
+     * Cancels this job, interrupting the thread that executes it. Returns
+     * {@code true} if the job was cancelled, or {@code false} if it had
+     * already completed.
+     */
+    public boolean cancel() {
+        Future<?> task = this.task;
+        if (task != null) {
+            task.cancel(true);
+        }
+        return future.cancel(true);
+    }
+
+    /**
+     * Returns a new future that completes when this job completes. Completing
+     * the returned future does not affect this job; use {@link #cancel()} to
+     * cancel it.
+     */
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public CompletableFuture<Void> getFuture() {
+        return future.copy();
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public State getState() {
+        if (!future.isDone()) {
+            return State.RUNNING;
+        }
+        else if (future.isCancelled()) {
+            return State.CANCELLED;
+        }
+        else if (future.isCompletedExceptionally()) {
+            return State.FAILED;
+        }
+        else {
+            return State.DONE;
+        }
+    }
+
+    public enum State {
+
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED;
+
+        @Contract(pure = true)
+        @NotNull
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
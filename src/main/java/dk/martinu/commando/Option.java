@@ -9,27 +9,181 @@ public final class Option {
 
     @NotNull
     public final String name;
+    // value is the range [valueStart, valueEnd) of source, if source is not null
     @Nullable
-    private final String value;
+    private final CharSequence source;
+    private final int valueStart;
+    private final int valueEnd;
+    @Nullable
+    private String value = null;
     @Nullable
     private Object resolvedValue = null;
+    // type of the resolved value, or null if there is no resolved value
+    @Nullable
+    private Type resolvedType = null;
+    // resolved primitive value; int and long values are stored as is, float
+    // and double values as their raw bits, and booleans as 1 or 0
+    private long bits = 0L;
+    // type that the option was last resolved as
+    @Nullable
+    private Type lastType = null;
+    // true if the option is shared by cached parameters and must not change
+    private boolean shared = false;
 
     public Option(@NotNull String name, @Nullable String value) {
         this.name = Objects.requireNonNull(name, "name is null");
+        this.source = value;
+        this.valueStart = 0;
+        this.valueEnd = value != null ? value.length() : 0;
         this.value = value;
     }
 
+    /**
+     * Creates a new option whose value is the specified range of
+     * {@code source}, or no value if {@code valueStart} is negative. The value
+     * is not copied from {@code source} until it is needed.
+     */
+    Option(@NotNull String name, @NotNull CharSequence source, int valueStart, int valueEnd) {
+        this.name = name;
+        this.source = valueStart >= 0 ? source : null;
+        this.valueStart = valueStart;
+        this.valueEnd = valueEnd;
+    }
+
+    /**
+     * Returns the resolved value of this option as a {@code boolean}.
+     *
+     * @throws IllegalStateException if the option does not have a resolved
+     *                               boolean value
+     */
+    @Contract(pure = true)
+    public boolean getBoolean() {
+        checkResolvedType(Type.BOOLEAN);
+        return bits != 0L;
+    }
+
+    /**
+     * Returns the resolved value of this option as a {@code double}. Int,
+     * long and float values are widened to {@code double}.
+     *
+     * @throws IllegalStateException if the option does not have a resolved
+     *                               numeric value
+     */
+    @Contract(pure = true)
+    public double getDouble() {
+        if (resolvedType == Type.DOUBLE) {
+            return Double.longBitsToDouble(bits);
+        }
+        else if (resolvedType == Type.FLOAT) {
+            return Float.intBitsToFloat((int) bits);
+        }
+        else if (resolvedType == Type.INT || resolvedType == Type.LONG) {
+            return bits;
+        }
+        else {
+            throw new IllegalStateException("option " + name + " does not have a resolved value of type " + Type.DOUBLE);
+        }
+    }
+
+    /**
+     * Returns the resolved value of this option as a {@code float}.
+     *
+     * @throws IllegalStateException if the option does not have a resolved
+     *                               float value
+     */
+    @Contract(pure = true)
+    public float getFloat() {
+        checkResolvedType(Type.FLOAT);
+        return Float.intBitsToFloat((int) bits);
+    }
+
+    /**
+     * Returns the resolved value of this option as an {@code int}.
+     *
+     * @throws IllegalStateException if the option does not have a resolved
+     *                               int value
+     */
+    @Contract(pure = true)
+    public int getInt() {
+        checkResolvedType(Type.INT);
+        return (int) bits;
+    }
+
+    /**
+     * Returns the resolved value of this option as a {@code long}. Int values
+     * are widened to {@code long}.
+     *
+     * @throws IllegalStateException if the option does not have a resolved
+     *                               int or long value
+     */
+    @Contract(pure = true)
+    public long getLong() {
+        if (resolvedType != Type.INT) {
+            checkResolvedType(Type.LONG);
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the resolved value of this option, or {@code null} if the option
+     * has no value. Primitive values are boxed the first time this method is
+     * called; use the typed accessors, e.g. {@link #getInt()}, to avoid
+     * boxing.
+     */
     @Contract(pure = true)
     @Nullable
     public Object getResolvedValue() {
+        if (resolvedValue == null && resolvedType != null) {
+            resolvedValue = switch (resolvedType) {
+                case BOOLEAN -> bits != 0L;
+                case INT -> (int) bits;
+                case LONG -> bits;
+                case FLOAT -> Float.intBitsToFloat((int) bits);
+                case DOUBLE -> Double.longBitsToDouble(bits);
+                default -> null;
+            };
+        }
         return resolvedValue;
     }
 
+    /**
+     * Returns the type of the resolved value, or {@code null} if the option
+     * has no resolved value.
+     */
+    @Contract(pure = true)
+    @Nullable
+    public Type getResolvedType() {
+        return resolvedType;
+    }
+
+    /**
+     * Returns the unresolved value of this option, or {@code null} if the
+     * option has no value.
+     */
+    @Nullable
+    public String getValue() {
+        if (value == null && source != null) {
+            value = source.subSequence(valueStart, valueEnd).toString();
+        }
+        return value;
+    }
+
     void resolve(@NotNull Type type, boolean required) throws OptionException {
+        if (shared) {
+            // shared options were resolved by the command they are cached for
+            if (type != lastType) {
+                throw new IllegalStateException("option " + name + " is shared and was resolved as " + lastType);
+            }
+            return;
+        }
+        lastType = type;
+        resolvedType = null;
+        resolvedValue = null;
+        bits = 0L;
+
         // value is not required or optional, and must be null
         if (type == Type.NONE) {
-            if (value == null) {
-                resolvedValue = null;
+            if (source == null) {
                 return;
             }
             else {
@@ -38,9 +192,8 @@ public final class Option {
         }
 
         // value is null and must not be required
-        if (value == null) {
+        if (source == null) {
             if (!required) {
-                resolvedValue = null;
                 return;
             }
             else {
@@ -50,38 +203,90 @@ public final class Option {
 
         // value is present and must be resolved
         switch (type) {
-            case STRING -> resolvedValue = String.copyValueOf(Util.unescape(value.toCharArray()));
+            case STRING -> resolvedValue = Util.unescape(getValue()).toString();
 
             case BOOLEAN -> {
-                if (value.equalsIgnoreCase("true")) {
-                    resolvedValue = Boolean.TRUE;
+                if (regionEqualsIgnoreCase("true")) {
+                    bits = 1L;
                 }
-                else if (value.equalsIgnoreCase("false")) {
-                    resolvedValue = Boolean.FALSE;
-                }
-                else {
-                    throw new OptionException("cannot resolve boolean value for option " + name + " {" + value + "}");
+                else if (!regionEqualsIgnoreCase("false")) {
+                    throw new OptionException("cannot resolve boolean value for option " + name + " {" + getValue() + "}");
                 }
             }
 
             case INT -> {
                 try {
-                    resolvedValue = Integer.valueOf(value);
+                    // parses directly from source without copying the value
+                    bits = Integer.parseInt(source, valueStart, valueEnd, 10);
                 }
                 catch (NumberFormatException e) {
-                    throw new OptionException("cannot resolve int value for option " + name + " {" + value + "}");
+                    throw new OptionException("cannot resolve int value for option " + name + " {" + getValue() + "}");
+                }
+            }
+
+            case LONG -> {
+                try {
+                    bits = Long.parseLong(source, valueStart, valueEnd, 10);
+                }
+                catch (NumberFormatException e) {
+                    throw new OptionException("cannot resolve long value for option " + name + " {" + getValue() + "}");
                 }
             }
 
             case FLOAT -> {
                 try {
-                    resolvedValue = Float.valueOf(value);
+                    bits = Float.floatToRawIntBits(Float.parseFloat(getValue()));
+                }
+                catch (NumberFormatException e) {
+                    throw new OptionException("cannot resolve float value for option " + name + " {" + getValue() + "}");
+                }
+            }
+
+            case DOUBLE -> {
+                try {
+                    bits = Double.doubleToRawLongBits(Double.parseDouble(getValue()));
                 }
                 catch (NumberFormatException e) {
-                    throw new OptionException("cannot resolve float value for option " + name + " {" + value + "}");
+                    throw new OptionException("cannot resolve double value for option " + name + " {" + getValue() + "}");
                 }
             }
         }
+        resolvedType = type;
+    }
+
+    /**
+     * Prepares this option to be shared by threads, after it has been
+     * resolved. The value is copied and primitive values are boxed, so the
+     * option is not modified afterwards, and resolving it again has no
+     * effect.
+     *
+     * @see ParametersCache
+     */
+    void share() {
+        getValue();
+        getResolvedValue();
+        shared = true;
+    }
+
+    private void checkResolvedType(@NotNull Type type) {
+        if (resolvedType != type) {
+            throw new IllegalStateException("option " + name + " does not have a resolved value of type " + type);
+        }
+    }
+
+    @Contract(pure = true)
+    private boolean regionEqualsIgnoreCase(@NotNull String s) {
+        assert source != null;
+        int len = s.length();
+        if (valueEnd - valueStart != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (Character.toLowerCase(source.charAt(valueStart + i)) != Character.toLowerCase(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public enum Type {
@@ -90,7 +295,9 @@ public final class Option {
         STRING,
         BOOLEAN,
         INT,
-        FLOAT;
+        LONG,
+        FLOAT,
+        DOUBLE;
 
         @Contract(pure = true)
         @NotNull
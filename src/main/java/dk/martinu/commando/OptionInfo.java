@@ -2,6 +2,7 @@ package dk.martinu.commando;
 
 import org.jetbrains.annotations.*;
 
+import java.util.Locale;
 import java.util.Objects;
 
 public record OptionInfo(@NotNull String name, @NotNull Option.Type type, boolean required, @Nullable String description) {
@@ -41,4 +42,11 @@ public record OptionInfo(@NotNull String name, @NotNull Option.Type type, boolea
             return false;
         }
     }
+
+    @Contract(pure = true)
+    @Override
+    public int hashCode() {
+        // consistent with equals, which ignores case and all other components
+        return name.toLowerCase(Locale.ROOT).hashCode();
+    }
 }
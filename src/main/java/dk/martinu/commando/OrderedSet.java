@@ -13,6 +13,10 @@ public abstract class OrderedSet<E> implements Set<E> {
 
     @SuppressWarnings("rawtypes")
     private static final OrderedSet EMPTY_SET = new SetEmpty();
+    /**
+     * Sets with more elements than this are backed by a hash index.
+     */
+    static final int HASH_THRESHOLD = 8;
 
     @Contract(value = "null -> fail", pure = true)
     @Unmodifiable
@@ -31,11 +35,37 @@ public abstract class OrderedSet<E> implements Set<E> {
                 return new Set12<>(source[0], Objects.requireNonNull(source[1], "null element"));
             }
             default -> {
-                return new SetN<>(source);
+                if (source.length > HASH_THRESHOLD) {
+                    return new SetHashed<>(source);
+                }
+                else {
+                    return new SetN<>(source);
+                }
             }
         }
     }
 
+    /**
+     * Returns a set of the elements in {@code source}, without copying or
+     * validating them if possible. The caller must ensure the array contains
+     * no {@code null} or duplicate elements and is never modified.
+     */
+    @Contract(pure = true)
+    @Unmodifiable
+    @NotNull
+    static <T> OrderedSet<T> ofTrusted(@NotNull T[] source) {
+        if (source.length > 2 && source.length <= HASH_THRESHOLD) {
+            return new SetN<>(source, true);
+        }
+        else {
+            return of(source);
+        }
+    }
+
+    // cached hash code; racing threads compute the same value
+    private int hash = 0;
+    private boolean hashIsZero = false;
+
     @Contract(value = "_ -> fail")
     @Override
     public final boolean add(E e) {
@@ -93,6 +123,29 @@ public abstract class OrderedSet<E> implements Set<E> {
         }
     }
 
+    /**
+     * Returns the sum of the hash codes of the elements in this set, as
+     * specified by {@link Set#hashCode()}. The hash code is computed once and
+     * cached.
+     */
+    @Contract(pure = true)
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && !hashIsZero) {
+            for (E element : this) {
+                h += element.hashCode();
+            }
+            if (h == 0) {
+                hashIsZero = true;
+            }
+            else {
+                hash = h;
+            }
+        }
+        return h;
+    }
+
     @Contract(value = "_ -> fail")
     @Override
     public boolean remove(Object o) {
@@ -299,10 +352,70 @@ public abstract class OrderedSet<E> implements Set<E> {
         }
     }
 
-    private static final class SetN<E> extends OrderedSet<E> {
+    /**
+     * Ordered set backed by an array of elements and an open-addressing hash
+     * index into that array. Construction is O(n) and {@code contains} is
+     * O(1), assuming the elements have well-distributed hash codes.
+     */
+    private static final class SetHashed<E> extends SetN<E> {
+
+        @Contract(pure = true)
+        private static int hash(@NotNull Object o) {
+            int h = o.hashCode();
+            return h ^ (h >>> 16);
+        }
 
+        // indices into elements, offset by one; 0 denotes an empty slot
         @NotNull
-        private final E[] elements;
+        private final int[] table;
+        private final int mask;
+
+        private SetHashed(E[] source) {
+            super(Arrays.copyOf(source, source.length), true);
+            // power of two with a load factor of at most 0.5
+            table = new int[Integer.highestOneBit(elements.length * 2 - 1) << 1];
+            mask = table.length - 1;
+            for (int i = 0; i < elements.length; i++) {
+                E element = Objects.requireNonNull(elements[i], "null element");
+                int slot = hash(element) & mask;
+                int index;
+                while ((index = table[slot]) != 0) {
+                    if (element.equals(elements[index - 1])) {
+                        throw new IllegalArgumentException("duplicate element {" + element + "}");
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+        }
+
+        @Override
+        boolean containsImpl(@NotNull Object o) {
+            int slot = hash(o) & mask;
+            int index;
+            while ((index = table[slot]) != 0) {
+                if (o.equals(elements[index - 1])) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+    }
+
+    private static class SetN<E> extends OrderedSet<E> {
+
+        @NotNull
+        final E[] elements;
+
+        /**
+         * Creates a new set backed by {@code elements} without copying or
+         * validating them. The caller must ensure the array contains no
+         * {@code null} or duplicate elements and is never modified.
+         */
+        private SetN(@NotNull E[] elements, @SuppressWarnings("unused") boolean trusted) {
+            this.elements = elements;
+        }
 
         private SetN(E[] source) {
             //noinspection unchecked
@@ -0,0 +1,131 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A sink that commands append their output to incrementally, instead of
+ * building it in a single string. Characters are collected in a reusable
+ * buffer of {@value #CHUNK_SIZE} characters; when it is full, the complete
+ * lines in it are printed by the engine as one chunk. Lines are never split
+ * across chunks, so the buffer only grows if a single line does not fit.
+ * <p>
+ * Each thread has its own sink, see {@link AbstractCliEngine#getOutput()}.
+ * The engine prints the remaining output when the command returns, and
+ * before anything printed by {@link AbstractCliEngine#println(String)} or
+ * {@link AbstractCliEngine#printf(String, Object...)}.
+ */
+public final class OutputSink implements Appendable {
+
+    public static final int CHUNK_SIZE = 8192;
+
+    @NotNull
+    private final AbstractCliEngine engine;
+    @NotNull
+    private char[] buffer = new char[CHUNK_SIZE];
+    private int count = 0;
+
+    OutputSink(@NotNull AbstractCliEngine engine) {
+        this.engine = Objects.requireNonNull(engine, "engine is null");
+    }
+
+    @Contract("_ -> this")
+    @NotNull
+    @Override
+    public OutputSink append(@Nullable CharSequence seq) {
+        if (seq == null) {
+            seq = "null";
+        }
+        return append(seq, 0, seq.length());
+    }
+
+    @Contract("_, _, _ -> this")
+    @NotNull
+    @Override
+    public OutputSink append(@Nullable CharSequence seq, int start, int end) {
+        if (seq == null) {
+            seq = "null";
+        }
+        Objects.checkFromToIndex(start, end, seq.length());
+        while (start < end) {
+            if (count == buffer.length) {
+                printLines(false);
+            }
+            int n = Math.min(end - start, buffer.length - count);
+            if (seq instanceof String s) {
+                s.getChars(start, start + n, buffer, count);
+            }
+            else {
+                for (int i = 0; i < n; i++) {
+                    buffer[count + i] = seq.charAt(start + i);
+                }
+            }
+            count += n;
+            start += n;
+        }
+        return this;
+    }
+
+    @Contract("_ -> this")
+    @NotNull
+    @Override
+    public OutputSink append(char c) {
+        if (count == buffer.length) {
+            printLines(false);
+        }
+        buffer[count++] = c;
+        return this;
+    }
+
+    /**
+     * Prints all complete lines in this sink. An incomplete last line is kept
+     * until it is terminated.
+     */
+    public void flush() {
+        if (count != 0) {
+            printLines(false);
+        }
+    }
+
+    /**
+     * Prints everything in this sink, terminating an incomplete last line, and
+     * shrinks the buffer if a long line made it grow.
+     */
+    void finish() {
+        if (count != 0) {
+            printLines(true);
+        }
+        if (buffer.length > CHUNK_SIZE) {
+            buffer = new char[CHUNK_SIZE];
+        }
+    }
+
+    /**
+     * Prints the complete lines in the buffer, or all characters if
+     * {@code all} is {@code true}. If the buffer is full and holds no line
+     * terminator, its size is doubled instead.
+     */
+    private void printLines(boolean all) {
+        // the engine terminates every line it prints, including the last
+        if (all) {
+            engine.printLines(buffer, 0, buffer[count - 1] == '\n' ? count - 1 : count);
+            count = 0;
+            return;
+        }
+        int end = count - 1;
+        while (end >= 0 && buffer[end] != '\n') {
+            end--;
+        }
+        if (end < 0) {
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            return;
+        }
+        engine.printLines(buffer, 0, end);
+        count -= end + 1;
+        System.arraycopy(buffer, end + 1, buffer, 0, count);
+    }
+}
@@ -15,10 +15,55 @@ public class Parameters {
             return EMPTY_PARAMETERS;
         }
         else {
-            return new Parameters(args);
+            return new Parameters(args, 0, args.length());
         }
     }
 
+    /**
+     * Returns the parameters in the specified range of {@code source}. The
+     * range is tokenized in a single pass; option values are not copied
+     * from {@code source} until they are resolved.
+     *
+     * @param source the characters to tokenize
+     * @param start  the starting index, inclusive
+     * @param end    the ending index, exclusive
+     * @throws IndexOutOfBoundsException if the range is out of bounds
+     * @throws OptionException           if an option could not be parsed
+     */
+    @Contract(pure = true)
+    @NotNull
+    public static Parameters from(@NotNull CharSequence source, int start, int end) throws OptionException {
+        Objects.requireNonNull(source, "source is null");
+        Objects.checkFromToIndex(start, end, source.length());
+        if (start == end) {
+            return EMPTY_PARAMETERS;
+        }
+        else {
+            return new Parameters(source, start, end);
+        }
+    }
+
+    /**
+     * Returns the index of the first double quote in the specified range of
+     * {@code source} that is not escaped, or {@code end} if there is none. A
+     * quote is escaped if it is preceded by an odd number of backslashes.
+     */
+    @Contract(pure = true)
+    private static int indexOfQuote(@NotNull CharSequence source, int start, int end) {
+        int i = start;
+        while ((i = Util.indexOf(source, '"', i, end)) != end) {
+            int k = i;
+            while (k > start && source.charAt(k - 1) == '\\') {
+                k--;
+            }
+            if ((i - k & 1) == 0) {
+                return i;
+            }
+            i++;
+        }
+        return end;
+    }
+
     @Unmodifiable
     @NotNull
     public final List<Option> options;
@@ -26,86 +71,71 @@ public class Parameters {
     public final String args;
 
     public Parameters(@Nullable String args) throws OptionException {
-        if (args == null) {
-            args = "";
-        }
-        Options options = getOptions(args);
-        this.options = List.copyOf(options.list());
-        this.args = options.isEmpty() ? args : args.substring(options.endIndex());
-    }
-
-    private Parameters() {
-        //noinspection unchecked
-        this.options = Collections.EMPTY_LIST;
-        this.args = "";
+        this(args != null ? args : "", 0, args != null ? args.length() : 0);
     }
 
-    // TODO option index used in exception messages is probably incorrect
-    @Contract(value = "_ -> new", pure = true)
-    @NotNull
-    private Options getOptions(@NotNull String args) throws OptionException {
-        List<Option> opList = new ArrayList<>();
-        int i = 0;
-        int len = args.length();
-        while (i < len) {
-            char c = args.charAt(i);
+    private Parameters(@NotNull CharSequence source, int start, int end) throws OptionException {
+        List<Option> list = null;
+        int i = start;
+        while (i < end) {
+            char c = source.charAt(i);
             if (c == ' ') {
                 i++;
+                continue;
             }
-            else if (c == '-') {
+            else if (c != '-') {
+                break;
+            }
+
+            // option name; validated and delimited in a single pass
+            int nameStart = ++i;
+            i = Util.skipName(source, nameStart, end);
+            if (i == nameStart || (i < end && (c = source.charAt(i)) != ' ' && c != ':')) {
+                while (i < end && (c = source.charAt(i)) != ' ' && c != ':') {
+                    i++;
+                }
+                throw new OptionException("invalid option name at index " + (nameStart - start)
+                        + " {" + source.subSequence(nameStart, i) + "}");
+            }
+            String name = source.subSequence(nameStart, i).toString();
+
+            // option value
+            int valueStart = -1;
+            int valueEnd = -1;
+            if (i < end && source.charAt(i) == ':') {
                 i++;
-                String opName;
-                String opValue = null;
-                int index = args.indexOf(':', i);
-                if (index != -1) {
-                    opName = args.substring(i + 1, index);
-                    if (Util.isNameInvalid(opName)) {
-                        throw new OptionException("invalid option name at index " + i + " {" + opName + "}");
-                    }
-                    i += opName.length() + 1;
-                    c = args.charAt(i);
-                    if (c == '"') {
-                        while ((index = args.indexOf('"', i + 1)) != -1) {
-                            if (args.charAt(index - 1) != '\\') {
-                                break;
-                            }
-                        }
-                        if (index == -1) {
-                            throw new OptionException("invalid option value at index " + i + " {" + opName + "}");
-                        }
-                        opValue = args.substring(i + 1, index);
-                        i += opValue.length() + 2;
-                    }
-                    else {
-                        index = args.indexOf(' ', i);
-                        opValue = index != -1 ? args.substring(i, index) : args.substring(i);
-                        if (opValue.isEmpty()) {
-                            throw new OptionException("missing option value at index " + i + " {" + opName + "}");
-                        }
-                        i += opValue.length();
+                if (i < end && source.charAt(i) == '"') {
+                    valueStart = ++i;
+                    i = indexOfQuote(source, valueStart, end);
+                    if (i == end) {
+                        throw new OptionException("invalid option value at index " + (valueStart - start)
+                                + " {" + name + "}");
                     }
+                    valueEnd = i++;
                 }
                 else {
-                    index = args.indexOf(' ', i);
-                    opName = index != -1 ? args.substring(i, index) : args.substring(i);
-                    if (Util.isNameInvalid(opName)) {
-                        throw new OptionException("invalid option name at index " + i + " {" + opName + "}");
+                    valueStart = i;
+                    i = Util.indexOf(source, ' ', i, end);
+                    valueEnd = i;
+                    if (valueStart == valueEnd) {
+                        throw new OptionException("missing option value at index " + (valueStart - start)
+                                + " {" + name + "}");
                     }
-                    i += opName.length();
                 }
-
-                opList.add(new Option(opName, opValue));
             }
-            else {
-                break;
+
+            if (list == null) {
+                list = new ArrayList<>(4);
             }
+            list.add(new Option(name, source, valueStart, valueEnd));
         }
-        return new Options(opList, i);
-    }
 
-    private record Options(@NotNull List<Option> list, int endIndex) {
+        this.options = list != null ? List.copyOf(list) : List.of();
+        this.args = source.subSequence(i, end).toString();
+    }
 
-        @Contract(pure = true)
-        public boolean isEmpty() { return list.isEmpty(); }
+    private Parameters() {
+        this.options = List.of();
+        this.args = "";
     }
 }
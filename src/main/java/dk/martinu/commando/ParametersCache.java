@@ -0,0 +1,114 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded cache of parsed and resolved parameters, keyed by the command and
+ * the arguments they were parsed from. When the cache is full, the least
+ * recently used parameters are evicted.
+ * <p>
+ * Cached parameters are shared by every execution of the same arguments, so
+ * their options are resolved once and are not modified afterwards. Instances
+ * are thread-safe and can be shared by engines, e.g. the sessions of a
+ * {@link SessionHostEngine}.
+ *
+ * @see AbstractCliEngine#setParametersCache(ParametersCache)
+ */
+public final class ParametersCache {
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final int capacity;
+    @NotNull
+    private final LinkedHashMap<Key, Parameters> map;
+    private long hits = 0L;
+    private long misses = 0L;
+
+    public ParametersCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParametersCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive {" + capacity + "}");
+        }
+        this.capacity = capacity;
+        // access order; the eldest entry is the least recently used
+        map = new LinkedHashMap<>(Math.min(capacity, 1 << 16) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Parameters> eldest) {
+                return size() > ParametersCache.this.capacity;
+            }
+        };
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        hits = 0L;
+        misses = 0L;
+    }
+
+    /**
+     * Returns the cached parameters of {@code args} for the specified
+     * command, or {@code null} if they are not cached.
+     */
+    @Nullable
+    public synchronized Parameters get(@NotNull CommandInfo commandInfo, @NotNull String args) {
+        Parameters parameters = map.get(new Key(commandInfo, args));
+        if (parameters != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return parameters;
+    }
+
+    @Contract(pure = true)
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Contract(pure = true)
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Contract(pure = true)
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Caches {@code parameters}, which were parsed from {@code args} and whose
+     * options have been resolved by the specified command. The options are
+     * shared and can no longer be resolved as another type.
+     */
+    public void put(@NotNull CommandInfo commandInfo, @NotNull String args, @NotNull Parameters parameters) {
+        Objects.requireNonNull(parameters, "parameters is null");
+        Key key = new Key(commandInfo, args);
+        for (Option option : parameters.options) {
+            option.share();
+        }
+        synchronized (this) {
+            map.put(key, parameters);
+        }
+    }
+
+    @Contract(pure = true)
+    public synchronized int size() {
+        return map.size();
+    }
+
+    private record Key(@NotNull CommandInfo commandInfo, @NotNull String args) {
+
+        Key {
+            Objects.requireNonNull(commandInfo, "commandInfo is null");
+            Objects.requireNonNull(args, "args is null");
+        }
+    }
+}
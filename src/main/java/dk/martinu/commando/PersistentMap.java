@@ -0,0 +1,348 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash map that is updated by path copying. {@link #put} and
+ * {@link #remove} return a new map that shares all but
+ * {@code O(log32(n))} nodes with this map, so a registry snapshot can be
+ * derived from the previous one without copying every mapping.
+ * <p>
+ * The map is a hash array mapped trie; each level consumes five bits of the
+ * key's hash code, and keys with equal hash codes are kept in collision
+ * nodes. Keys and values must not be {@code null}.
+ */
+final class PersistentMap<K, V> {
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    @NotNull
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @Contract(pure = true)
+    private static int bit(int hash, int shift) {
+        return 1 << (hash >>> shift & 31);
+    }
+
+    /**
+     * Returns a node that holds the two specified mappings, whose keys are
+     * not equal.
+     */
+    @NotNull
+    private static Node newNode(int shift, @NotNull Object key1, @NotNull Object value1, int hash2,
+            @NotNull Object key2, @NotNull Object value2) {
+        int hash1 = key1.hashCode();
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+        }
+        int bit1 = bit(hash1, shift);
+        int bit2 = bit(hash2, shift);
+        if (bit1 == bit2) {
+            return new BitmapNode(bit1, new Object[] {null, newNode(shift + 5, key1, value1, hash2, key2, value2)});
+        }
+        else if (Integer.compareUnsigned(bit1, bit2) < 0) {
+            return new BitmapNode(bit1 | bit2, new Object[] {key1, value1, key2, value2});
+        }
+        else {
+            return new BitmapNode(bit1 | bit2, new Object[] {key2, value2, key1, value1});
+        }
+    }
+
+    @Nullable
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(@Nullable Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @Contract(pure = true)
+    public boolean containsKey(@NotNull Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Performs {@code action} for each mapping, in no particular order.
+     */
+    public void forEach(@NotNull BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action, "action is null");
+        if (root != null) {
+            root.forEach(action);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    @Nullable
+    public V get(@NotNull Object key) {
+        return root != null ? (V) root.get(0, key.hashCode(), key) : null;
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public V getOrDefault(@NotNull Object key, @NotNull V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Contract(pure = true)
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a map with the specified mapping added or replaced, or this map
+     * if the key is already mapped to the same value.
+     */
+    @Contract(pure = true)
+    @NotNull
+    public PersistentMap<K, V> put(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(key, "key is null");
+        Objects.requireNonNull(value, "value is null");
+        int hash = key.hashCode();
+        if (root == null) {
+            return new PersistentMap<>(new BitmapNode(bit(hash, 0), new Object[] {key, value}), 1);
+        }
+        boolean[] added = {false};
+        Node node = root.put(0, hash, key, value, added);
+        return node == root ? this : new PersistentMap<>(node, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the mapping of the specified key, or this map if
+     * the key is not mapped.
+     */
+    @Contract(pure = true)
+    @NotNull
+    public PersistentMap<K, V> remove(@NotNull Object key) {
+        if (root == null) {
+            return this;
+        }
+        Node node = root.remove(0, key.hashCode(), key);
+        return node == root ? this : new PersistentMap<>(node, size - 1);
+    }
+
+    @Contract(pure = true)
+    public int size() {
+        return size;
+    }
+
+    private interface Node {
+
+        void forEach(@NotNull BiConsumer action);
+
+        @Nullable
+        Object get(int shift, int hash, @NotNull Object key);
+
+        // returns this node if unchanged; sets added[0] if the key is new
+        @NotNull
+        Node put(int shift, int hash, @NotNull Object key, @NotNull Object value, @NotNull boolean[] added);
+
+        // returns this node if unchanged, or null if the node is empty
+        @Nullable
+        Node remove(int shift, int hash, @NotNull Object key);
+    }
+
+    /**
+     * A node with up to 32 entries, one for each set bit of the bitmap. Each
+     * entry is a key and its value, or {@code null} and a child node.
+     */
+    private static final class BitmapNode implements Node {
+
+        final int bitmap;
+        @NotNull
+        final Object[] array;
+
+        BitmapNode(int bitmap, @NotNull Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(@NotNull BiConsumer action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] != null) {
+                    action.accept(array[i], array[i + 1]);
+                }
+                else {
+                    ((Node) array[i + 1]).forEach(action);
+                }
+            }
+        }
+
+        @Nullable
+        @Override
+        public Object get(int shift, int hash, @NotNull Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).get(shift + 5, hash, key);
+            }
+            return key.equals(k) ? array[i + 1] : null;
+        }
+
+        @NotNull
+        @Override
+        public Node put(int shift, int hash, @NotNull Object key, @NotNull Object value, @NotNull boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(shift + 5, hash, key, value, added);
+                return child == v ? this : with(i + 1, child);
+            }
+            if (key.equals(k)) {
+                return value == v ? this : with(i + 1, value);
+            }
+            added[0] = true;
+            Node child = newNode(shift + 5, k, v, hash, key, value);
+            Object[] copy = array.clone();
+            copy[i] = null;
+            copy[i + 1] = child;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Nullable
+        @Override
+        public Node remove(int shift, int hash, @NotNull Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+            Object k = array[i];
+            if (k == null) {
+                Node child = (Node) array[i + 1];
+                Node next = child.remove(shift + 5, hash, key);
+                if (next == child) {
+                    return this;
+                }
+                return next != null ? with(i + 1, next) : without(bit, i);
+            }
+            return key.equals(k) ? without(bit, i) : this;
+        }
+
+        @NotNull
+        private BitmapNode with(int index, @NotNull Object value) {
+            Object[] copy = array.clone();
+            copy[index] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Nullable
+        private BitmapNode without(int bit, int index) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, index);
+            System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+            return new BitmapNode(bitmap ^ bit, copy);
+        }
+    }
+
+    /**
+     * A node of keys that have the same hash code, as keys and values in
+     * pairs.
+     */
+    private static final class CollisionNode implements Node {
+
+        final int hash;
+        @NotNull
+        final Object[] array;
+
+        CollisionNode(int hash, @NotNull Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(@NotNull BiConsumer action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+
+        @Nullable
+        @Override
+        public Object get(int shift, int hash, @NotNull Object key) {
+            int i = indexOf(key);
+            return i != -1 ? array[i + 1] : null;
+        }
+
+        @NotNull
+        @Override
+        public Node put(int shift, int hash, @NotNull Object key, @NotNull Object value, @NotNull boolean[] added) {
+            if (hash != this.hash) {
+                // nest this node in a bitmap node and add the key beside it
+                return new BitmapNode(bit(this.hash, shift), new Object[] {null, this})
+                        .put(shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i != -1) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            Object[] copy = Arrays.copyOf(array, array.length + 2);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Nullable
+        @Override
+        public Node remove(int shift, int hash, @NotNull Object key) {
+            int i = indexOf(key);
+            if (i == -1) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Contract(pure = true)
+        private int indexOf(@NotNull Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package dk.martinu.commando;
+
+import org.jetbrains.annotations.*;
+
+import java.util.Objects;
+
+/**
+ * A bounded channel of lines between two commands of a pipeline. Writing
+ * blocks while the pipe is full and reading blocks while it is empty, so
+ * the downstream command processes the output of the upstream command as
+ * it is printed, and at most {@code capacity} lines are held at once.
+ */
+final class Pipe {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    @NotNull
+    private final String[] lines;
+    // index of the next line to read
+    private int head = 0;
+    private int size = 0;
+    private boolean writerClosed = false;
+    private boolean readerClosed = false;
+
+    Pipe(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive {" + capacity + "}");
+        }
+        lines = new String[capacity];
+    }
+
+    /**
+     * Closes the reading end of this pipe. Lines that are written afterwards
+     * are discarded.
+     */
+    synchronized void closeReader() {
+        readerClosed = true;
+        while (size != 0) {
+            lines[head] = null;
+            head = (head + 1) % lines.length;
+            size--;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Closes the writing end of this pipe. Lines that have already been
+     * written can still be read.
+     */
+    synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns the next line, or {@code null} if the writing end is closed and
+     * all lines have been read.
+     */
+    @Nullable
+    synchronized String readLine() throws InterruptedException {
+        while (size == 0) {
+            if (writerClosed || readerClosed) {
+                return null;
+            }
+            wait();
+        }
+        String line = lines[head];
+        lines[head] = null;
+        head = (head + 1) % lines.length;
+        if (size-- == lines.length) {
+            notifyAll();
+        }
+        return line;
+    }
+
+    /**
+     * Writes each line of {@code s} to this pipe.
+     */
+    synchronized void write(@NotNull String s) throws InterruptedException {
+        Objects.requireNonNull(s, "s is null");
+        int start = 0;
+        int end;
+        do {
+            end = s.indexOf('\n', start);
+            put(s.substring(start, end != -1 ? end : s.length()));
+            start = end + 1;
+        }
+        while (end != -1);
+    }
+
+    private void put(@NotNull String line) throws InterruptedException {
+        while (size == lines.length && !readerClosed) {
+            wait();
+        }
+        if (readerClosed) {
+            return;
+        }
+        if (writerClosed) {
+            throw new IllegalStateException("pipe is closed");
+        }
+        lines[(head + size) % lines.length] = line;
+        if (size++ == 0) {
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package dk.martinu.commando;
+
+import dk.martinu.commando.cmd.*;
+import org.jetbrains.annotations.*;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Hosts many concurrent CLI sessions that share a single
+ * {@link CommandRegistry} and {@link CommandStats}. Each session runs its
+ * read/parse/execute loop as a task on the host's executor, which uses one
+ * virtual thread per session when the runtime supports it, and writes to its
+ * own output.
+ */
+public class SessionHostEngine {
+
+    @NotNull
+    private static ExecutorService newSessionExecutor() {
+        // virtual threads are used if available (Java 21+)
+        try {
+            MethodHandle mh = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) mh.invoke();
+        }
+        catch (Throwable ignore) { }
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "commando-session");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @NotNull
+    private final CommandRegistry registry = new CommandRegistry();
+    @NotNull
+    private final CommandStats stats = new CommandStats();
+    @NotNull
+    private final ExecutorService executor;
+    @NotNull
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+
+    public SessionHostEngine() {
+        this(newSessionExecutor());
+    }
+
+    public SessionHostEngine(@NotNull ExecutorService executor) {
+        this.executor = Objects.requireNonNull(executor, "executor is null");
+        initRegistry();
+    }
+
+    public void addCommand(@NotNull CommandInfo commandInfo) {
+        Objects.requireNonNull(commandInfo, "commandInfo is null");
+        registry.put(commandInfo);
+    }
+
+    /**
+     * Registers the commands of {@code provider} without loading their
+     * classes, see {@link AbstractCliEngine#addCommands(CommandProvider)}.
+     */
+    public void addCommands(@NotNull CommandProvider provider) {
+        Objects.requireNonNull(provider, "provider is null");
+        registry.putLazy(provider);
+    }
+
+    /**
+     * Registers the commands of all {@link CommandProvider} services found by
+     * {@link ServiceLoader}.
+     */
+    public void discoverCommands() {
+        for (CommandProvider provider : ServiceLoader.load(CommandProvider.class)) {
+            addCommands(provider);
+        }
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public CommandRegistry getRegistry() {
+        return registry;
+    }
+
+    @Contract(pure = true)
+    @NotNull
+    public CommandStats getStats() {
+        return stats;
+    }
+
+    @Contract(pure = true)
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @NotNull
+    public Session openSession(@NotNull InputStream in, @NotNull OutputStream out) {
+        Objects.requireNonNull(in, "in is null");
+        Objects.requireNonNull(out, "out is null");
+        Charset charset = Charset.defaultCharset();
+        return openSession(new Scanner(in, charset), new PrintWriter(new OutputStreamWriter(out, charset)));
+    }
+
+    @NotNull
+    public Session openSession(@NotNull Scanner scanner, @NotNull PrintWriter out) {
+        Session session = new Session(this, scanner, out);
+        sessions.add(session);
+        try {
+            session.future = executor.submit(session);
+        }
+        catch (RejectedExecutionException e) {
+            sessions.remove(session);
+            throw e;
+        }
+        return session;
+    }
+
+    @Nullable
+    public CommandInfo removeCommand(@NotNull String name) {
+        Objects.requireNonNull(name, "name is null");
+        return registry.remove(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Stops all open sessions and shuts down the executor. The scanner of each
+     * session is closed, which closes its input stream; a session that is
+     * blocked reading input only stops immediately if closing the stream
+     * unblocks the read, as it does for sockets. Otherwise the session stops
+     * when the read returns. Interrupting a session does not unblock a read.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        for (Session session : sessions) {
+            session.stopEngine();
+            Future<?> future = session.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    protected void initRegistry() {
+        addCommands(new BuiltinCommands());
+    }
+
+    /**
+     * A single session of a {@link SessionHostEngine}. Sessions are never
+     * started as threads; their {@link #run()} method is executed by the
+     * host's executor.
+     */
+    public static final class Session extends AbstractCliEngine {
+
+        @NotNull
+        private final SessionHostEngine host;
+        @NotNull
+        private final PrintWriter out;
+        @Nullable
+        private volatile Future<?> future = null;
+
+        private Session(@NotNull SessionHostEngine host, @NotNull Scanner scanner, @NotNull PrintWriter out) {
+            super(scanner, true, host.registry, host.stats);
+            this.host = host;
+            this.out = Objects.requireNonNull(out, "out is null");
+        }
+
+        @Contract(pure = true)
+        public boolean isDone() {
+            Future<?> future = this.future;
+            return future != null && future.isDone();
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            }
+            finally {
+                host.sessions.remove(this);
+            }
+        }
+
+        @Override
+        protected void freeResources() {
+            out.close();
+        }
+
+        @Override
+        @NotNull
+        protected PrintWriter out() {
+            return out;
+        }
+    }
+}
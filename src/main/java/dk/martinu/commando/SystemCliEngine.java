@@ -3,15 +3,19 @@ package dk.martinu.commando;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
-import java.util.Arrays;
 import java.util.Scanner;
 
 public class SystemCliEngine extends AbstractCliEngine {
 
-    public final PrintWriter out = new PrintWriter(new OutWrapper());
+    public final PrintWriter out;
 
     public SystemCliEngine(boolean daemon) {
+        this(daemon, BatchingWriter.FlushPolicy.DEFAULT);
+    }
+
+    public SystemCliEngine(boolean daemon, @NotNull BatchingWriter.FlushPolicy policy) {
         super(new Scanner(new InWrapper()), daemon);
+        out = new PrintWriter(new BatchingWriter(new OutWrapper(), policy));
     }
 
     @Override
@@ -19,6 +23,11 @@ public class SystemCliEngine extends AbstractCliEngine {
         out.close();
     }
 
+    @Override
+    protected boolean isOutputBatched() {
+        return true;
+    }
+
     @Override
     @NotNull
     protected PrintWriter out() {
@@ -101,26 +110,22 @@ public class SystemCliEngine extends AbstractCliEngine {
 
     private static final class OutWrapper extends Writer {
 
+        // encodes directly from the caller's array; System.out is never closed
+        private final Writer writer = new OutputStreamWriter(System.out, Util.getStdoutCharset());
+
         @Override
-        public void close() {
-            // DO NOTHING
+        public void close() throws IOException {
+            writer.flush();
         }
 
         @Override
-        public void flush() {
-            System.out.flush();
+        public void flush() throws IOException {
+            writer.flush();
         }
 
         @Override
-        public void write(@SuppressWarnings("NullableProblems") char[] chars, int offset, int length) {
-            if (offset == 0 && chars.length == length) {
-                System.out.print(chars);
-            }
-            else {
-                // assertion to ensure copyOfRange does not return array padded with null characters
-                assert (offset + length) <= chars.length : "to=" + (offset + length);
-                System.out.print(Arrays.copyOfRange(chars, offset, offset + length));
-            }
+        public void write(@SuppressWarnings("NullableProblems") char[] chars, int offset, int length) throws IOException {
+            writer.write(chars, offset, length);
         }
     }
 }
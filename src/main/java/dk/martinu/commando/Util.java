@@ -3,10 +3,70 @@ package dk.martinu.commando;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Objects;
 
 public class Util {
 
+    /**
+     * {@code true} for each ASCII character that is valid in a name.
+     */
+    private static final boolean[] NAME_CHARS = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            NAME_CHARS[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            NAME_CHARS[c] = true;
+            NAME_CHARS[c + ('a' - 'A')] = true;
+        }
+        NAME_CHARS['_'] = true;
+    }
+
+    /**
+     * Returns the index of the first occurrence of {@code c} in the specified
+     * range of {@code seq}, or {@code end} if it does not occur. Strings are
+     * searched with {@link String#indexOf(int, int)}, which the JVM compiles
+     * to vectorized instructions where available; other sequences are
+     * searched one character at a time.
+     *
+     * @param seq   the characters to search
+     * @param c     the character to search for
+     * @param start the starting index, inclusive
+     * @param end   the ending index, exclusive
+     */
+    @Contract(pure = true)
+    public static int indexOf(@NotNull CharSequence seq, char c, int start, int end) {
+        if (seq instanceof String s) {
+            int index = s.indexOf(c, start);
+            return index != -1 && index < end ? index : end;
+        }
+        while (start < end && seq.charAt(start) != c) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the charset of standard output, i.e. the charset named by the
+     * {@code sun.stdout.encoding} property, or the default charset if the
+     * property is not set or names an unsupported charset.
+     */
+    @Contract(pure = true)
+    @NotNull
+    static Charset getStdoutCharset() {
+        String name = System.getProperty("sun.stdout.encoding");
+        if (name != null) {
+            try {
+                return Charset.forName(name);
+            }
+            catch (IllegalArgumentException ignore) { }
+        }
+        return Charset.defaultCharset();
+    }
+
     /**
      * Returns {@code true} if the specified character {@code c} is a decimal
      * digit, otherwise {@code false} is returned.
@@ -51,16 +111,48 @@ public class Util {
     @Contract(pure = true)
     public static boolean isNameInvalid(@NotNull String name) {
         Objects.requireNonNull(name, "name is null");
-        if (name.isEmpty()) {
-            return true;
-        }
-        for (int i = 0, len = name.length(); i < len; i++) {
-            char c = name.charAt(i);
-            if ((c < '0' || c > '9') && (c < 'A' || c > 'Z') && (c < 'a' || c > 'z') && c != '_') {
-                return true;
+        return isNameInvalid(name, 0, name.length());
+    }
+
+    /**
+     * Returns {@code true} if the characters in the specified range of
+     * {@code seq} do not form a valid name, otherwise {@code false} is
+     * returned. A valid name is non-empty and contains only ASCII letters,
+     * decimal digits and underscores.
+     *
+     * @param seq   the characters to test
+     * @param start the starting index, inclusive
+     * @param end   the ending index, exclusive
+     * @return {@code true} if the range is not a valid name, otherwise
+     * {@code false}
+     */
+    @Contract(pure = true)
+    public static boolean isNameInvalid(@NotNull CharSequence seq, int start, int end) {
+        Objects.requireNonNull(seq, "seq is null");
+        return start >= end || skipName(seq, start, end) != end;
+    }
+
+    /**
+     * Returns the index of the first character in the specified range of
+     * {@code seq} that is not valid in a name, or {@code end} if all
+     * characters are valid. Each character is tested with a single table
+     * lookup.
+     *
+     * @param seq   the characters to test
+     * @param start the starting index, inclusive
+     * @param end   the ending index, exclusive
+     * @see #isNameInvalid(CharSequence, int, int)
+     */
+    @Contract(pure = true)
+    public static int skipName(@NotNull CharSequence seq, int start, int end) {
+        while (start < end) {
+            char c = seq.charAt(start);
+            if (c >= NAME_CHARS.length || !NAME_CHARS[c]) {
+                break;
             }
+            start++;
         }
-        return false;
+        return start;
     }
 
     /**
@@ -88,75 +180,135 @@ public class Util {
      */
     @Contract(value = "null, _, _ -> fail", pure = true)
     public static char[] unescape(char[] chars, int start, int end) {
-        CharBuffer buffer = new CharBuffer(end - start);
-        for (int i = start; i < end; ) {
+        Objects.checkFromToIndex(start, end, chars.length);
+        int i = start;
+        while (i < end && chars[i] != '\\') {
+            i++;
+        }
+        if (i == end) {
+            return start == 0 && end == chars.length ? chars : Arrays.copyOfRange(chars, start, end);
+        }
+        char[] dst = new char[end - start];
+        System.arraycopy(chars, start, dst, 0, i - start);
+        int length = unescape(java.nio.CharBuffer.wrap(chars), i, end, dst, i - start);
+        return length == dst.length ? dst : Arrays.copyOf(dst, length);
+    }
+
+    /**
+     * Returns {@code seq} with its escape sequences replaced by the
+     * characters they represent. If {@code seq} contains no backslash, then
+     * {@code seq} itself is returned.
+     * <p>
+     * The first backslash of a string is found with {@link String#indexOf(int)},
+     * which the JVM compiles to vectorized instructions where available.
+     *
+     * @param seq the characters to unescape
+     * @return {@code seq}, or a string of the unescaped characters
+     */
+    @Contract(pure = true)
+    @NotNull
+    public static CharSequence unescape(@NotNull CharSequence seq) {
+        Objects.requireNonNull(seq, "seq is null");
+        int length = seq.length();
+        int i;
+        if (seq instanceof String s) {
+            i = s.indexOf('\\');
+            if (i == -1) {
+                return seq;
+            }
+        }
+        else {
+            i = 0;
+            while (i < length && seq.charAt(i) != '\\') {
+                i++;
+            }
+            if (i == length) {
+                return seq;
+            }
+        }
+        char[] dst = new char[length];
+        for (int k = 0; k < i; k++) {
+            dst[k] = seq.charAt(k);
+        }
+        return new String(dst, 0, unescape(seq, i, length, dst, i));
+    }
+
+    /**
+     * Decodes the range {@code [i, end)} of {@code src} into {@code dst},
+     * starting at index {@code n}, and returns the index in {@code dst} after
+     * the last decoded character.
+     */
+    private static int unescape(@NotNull CharSequence src, int i, int end, @NotNull char[] dst, int n) {
+        while (i < end) {
+            char c = src.charAt(i);
 
             // ordinary character
-            if (chars[i] != '\\') {
-                buffer.append(chars[i++]);
+            if (c != '\\') {
+                dst[n++] = c;
+                i++;
+                continue;
             }
 
-            // start of escape sequence
-            else {
-                // remaining characters, including the backslash
-                int rem = end - i;
-                // no more chars
-                if (rem == 1) {
-                    // TODO output warning
-                    break;
-                }
+            // no more chars
+            if (i + 1 == end) {
+                // TODO output warning
+                break;
+            }
 
-                // six-character escape sequence, e.g. \\u0020
-                else if (chars[i + 1] == 'u' || chars[i + 1] == 'U') {
-                    if (rem >= 6 && isHexDigit(chars[i + 2]) && isHexDigit(chars[i + 3])
-                            && isHexDigit(chars[i + 4]) && isHexDigit(chars[i + 5])) {
-                        // get int value of 4-digit hex and cast it to char
-                        buffer.append((char) Integer.valueOf(String.copyValueOf(
-                                chars, i + 2, 4), 16).intValue());
-                        i += 6;
-                    }
-                    // sequence is incomplete
-                    else {
-                        // TODO output warning
-                        buffer.append(chars[i + 1]);
-                        i += 2;
-                    }
+            c = src.charAt(i + 1);
+            // six-character escape sequence, e.g. \\u0020
+            if (c == 'u' || c == 'U') {
+                int value = end - i >= 6 ? hexValue(src, i + 2) : -1;
+                if (value != -1) {
+                    dst[n++] = (char) value;
+                    i += 6;
                 }
-                // two-character escape sequence, e.g. \\n
+                // sequence is incomplete
                 else {
-                    char c = chars[i + 1];
-                    if (c == '0') {
-                        buffer.append('\0');
-                    }
-                    else if (c == 'b') {
-                        buffer.append('\b');
-                    }
-                    else if (c == 't') {
-                        buffer.append('\t');
-                    }
-                    else if (c == 'n') {
-                        buffer.append('\n');
-                    }
-                    else if (c == 'f') {
-                        buffer.append('\f');
-                    }
-                    else if (c == 'r') {
-                        buffer.append('\r');
-                    }
-                    else {
-                        buffer.append(c);
-                    }
+                    // TODO output warning
+                    dst[n++] = c;
                     i += 2;
                 }
             }
+            // two-character escape sequence, e.g. \\n
+            else {
+                dst[n++] = switch (c) {
+                    case '0' -> '\0';
+                    case 'b' -> '\b';
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'f' -> '\f';
+                    case 'r' -> '\r';
+                    default -> c;
+                };
+                i += 2;
+            }
         }
+        return n;
+    }
 
-        if (buffer.cursor() != chars.length) {
-            return buffer.toCharArray();
-        }
-        else {
-            return chars;
+    /**
+     * Returns the value of the four hexadecimal digits at {@code index} in
+     * {@code seq}, or {@code -1} if they are not all hexadecimal digits.
+     */
+    @Contract(pure = true)
+    private static int hexValue(@NotNull CharSequence seq, int index) {
+        int value = 0;
+        for (int i = index; i < index + 4; i++) {
+            char c = seq.charAt(i);
+            int digit;
+            if (isDigit(c)) {
+                digit = c - '0';
+            }
+            else if ((c | 0x20) >= 'a' && (c | 0x20) <= 'f') {
+                digit = (c | 0x20) - 'a' + 10;
+            }
+            else {
+                return -1;
+            }
+            value = value << 4 | digit;
         }
+        return value;
     }
 
     public static boolean wildcardMatch(@NotNull String pattern, @NotNull String str) {
@@ -198,61 +350,4 @@ public class Util {
             }
         }
     }
-
-    /**
-     * A fixed-size, unsafe buffer of {@code char} values. Values can be
-     * appended to the buffer, but not removed.
-     */
-    private static class CharBuffer {
-
-        /**
-         * The buffer array.
-         */
-        final char[] chars;
-        /**
-         * Current cursor location for appending values.
-         */
-        int cursor = 0;
-
-        /**
-         * Creates a new buffer with the specified size.
-         *
-         * @throws NegativeArraySizeException if {@code size} is negative
-         */
-        CharBuffer(int size) {
-            chars = new char[size];
-        }
-
-        /**
-         * Appends the specified character to this buffer.
-         *
-         * @throws ArrayIndexOutOfBoundsException if this buffer is full
-         */
-        void append(char c) {
-            chars[cursor++] = c;
-        }
-
-        /**
-         * Returns the current cursor location in this buffer.
-         */
-        int cursor() {
-            return cursor;
-        }
-
-        /**
-         * Returns an array of the character values in this buffer. If this
-         * buffer is full, then its own internal array is returned. Otherwise,
-         * a new array with a length equal to the number of values is allocated
-         * and returned.
-         */
-        @Contract(pure = true)
-        char[] toCharArray() {
-            if (cursor != chars.length) {
-                char[] rv = new char[cursor];
-                System.arraycopy(chars, 0, rv, 0, cursor);
-                return rv;
-            }
-            else { return chars; }
-        }
-    }
 }
@@ -6,6 +6,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Iterator;
 
+@Cmd(aliases = {"command", "cmd"}, args = ArgsInfo.REQUIRED)
 public class CommandCmd implements StaticCommand {
 
     private static volatile CommandCmd instance = null;
@@ -13,11 +14,7 @@ public class CommandCmd implements StaticCommand {
     @Contract(value = "-> new", pure = true)
     @NotNull
     public static CommandInfo getInfo() {
-        return new CommandInfo.Builder()
-                .setCls(CommandCmd.class)
-                .setAliases("command", "cmd")
-                .setArgsInfo(ArgsInfo.REQUIRED)
-                .get();
+        return CommandCmdDescriptor.create();
     }
 
     @NotNull
@@ -4,6 +4,7 @@ import dk.martinu.commando.*;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+@Cmd(aliases = "exit")
 public class ExitCmd implements StaticCommand {
 
     private static volatile ExitCmd instance = null;
@@ -11,7 +12,7 @@ public class ExitCmd implements StaticCommand {
     @Contract(value = "-> new", pure = true)
     @NotNull
     public static CommandInfo getInfo() {
-        return new CommandInfo(ExitCmd.class, "exit");
+        return ExitCmdDescriptor.create();
     }
 
     @NotNull
@@ -0,0 +1,65 @@
+package dk.martinu.commando.cmd;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+@Cmd(aliases = {"filter", "f"},
+        options = @Cmd.Opt(name = "invert"),
+        args = ArgsInfo.REQUIRED)
+public class FilterCmd implements StaticCommand {
+
+    private static volatile FilterCmd instance = null;
+
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public static CommandInfo getInfo() {
+        return FilterCmdDescriptor.create();
+    }
+
+    @NotNull
+    public static FilterCmd getInstance() {
+        if (instance == null) {
+            synchronized (FilterCmd.class) {
+                if (instance == null) {
+                    instance = new FilterCmd();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Contract(pure = true)
+    private static boolean containsIgnoreCase(@NotNull String line, @NotNull String s) {
+        for (int i = 0, end = line.length() - s.length(); i <= end; i++) {
+            if (line.regionMatches(true, i, s, 0, s.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prints each line of piped input that contains the arguments, ignoring
+     * case, or that does not contain them if {@code -invert} is specified.
+     * Lines are printed as they are read.
+     */
+    @Override
+    public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) throws CommandException {
+        if (parameters.args.isEmpty()) {
+            throw new CommandException("no filter specified");
+        }
+        if (!engine.isInputPiped()) {
+            throw new CommandException("no input to filter; pipe a command into it, e.g. \"list | filter "
+                    + parameters.args + "\"");
+        }
+        // invert is the only option
+        boolean invert = !parameters.options.isEmpty();
+        String line;
+        while ((line = engine.readInput()) != null) {
+            if (containsIgnoreCase(line, parameters.args) != invert) {
+                engine.println(line);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import dk.martinu.commando.*;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+@Cmd(aliases = {"help", "h"}, args = ArgsInfo.OPTIONAL)
 public class HelpCmd implements StaticCommand {
 
     private static volatile HelpCmd instance = null;
@@ -12,11 +13,7 @@ public class HelpCmd implements StaticCommand {
     @NotNull
     public static CommandInfo getInfo() {
         // TODO add optionInfo
-        return new CommandInfo.Builder()
-                .setCls(HelpCmd.class)
-                .setAliases("help", "h")
-                .setArgsInfo(ArgsInfo.OPTIONAL)
-                .get();
+        return HelpCmdDescriptor.create();
     }
 
     @NotNull
@@ -36,7 +33,7 @@ public class HelpCmd implements StaticCommand {
         if (parameters.args.isEmpty()) {
             StringBuilder sb = new StringBuilder(128);
             sb.append("Usage:\n\thelp\n\t(to view this information)\nor\n\thelp <command_name>\n\t(to view the help information for the specified command)");
-            if (engine.hasCommand(ListCmd.getInfo())) {
+            if (engine.hasCommand(ListCmd.class)) {
                 sb.append("\n\ntype \"list\" to view a list of all available commands");
             }
             engine.println(sb.toString());
@@ -0,0 +1,63 @@
+package dk.martinu.commando.cmd;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+@Cmd(aliases = "history",
+        options = @Cmd.Opt(name = "count", type = Option.Type.INT, required = true),
+        args = ArgsInfo.OPTIONAL)
+public class HistoryCmd implements StaticCommand {
+
+    private static final int DEFAULT_COUNT = 20;
+
+    private static volatile HistoryCmd instance = null;
+
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public static CommandInfo getInfo() {
+        return HistoryCmdDescriptor.create();
+    }
+
+    @NotNull
+    public static HistoryCmd getInstance() {
+        if (instance == null) {
+            synchronized (HistoryCmd.class) {
+                if (instance == null) {
+                    instance = new HistoryCmd();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) throws CommandException {
+        int count = DEFAULT_COUNT;
+        if (!parameters.options.isEmpty()) {
+            // count is the only option
+            count = parameters.options.get(0).getInt();
+            if (count < 1) {
+                throw new CommandException("count must be positive {" + count + "}");
+            }
+        }
+
+        List<History.Entry> entries;
+        if (parameters.args.isEmpty()) {
+            entries = engine.getHistory().getLast(count);
+        }
+        else {
+            entries = engine.getHistory().search(parameters.args, count);
+        }
+        OutputSink out = engine.getOutput();
+        for (History.Entry entry : entries) {
+            String number = Integer.toString(entry.number());
+            for (int i = number.length(); i < 5; i++) {
+                out.append(' ');
+            }
+            out.append(number).append("  ").append(entry.line()).append('\n');
+        }
+    }
+}
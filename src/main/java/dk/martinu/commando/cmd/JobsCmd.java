@@ -0,0 +1,42 @@
+package dk.martinu.commando.cmd;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.StringJoiner;
+
+@Cmd(aliases = "jobs")
+public class JobsCmd implements StaticCommand {
+
+    private static volatile JobsCmd instance = null;
+
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public static CommandInfo getInfo() {
+        return JobsCmdDescriptor.create();
+    }
+
+    @NotNull
+    public static JobsCmd getInstance() {
+        if (instance == null) {
+            synchronized (JobsCmd.class) {
+                if (instance == null) {
+                    instance = new JobsCmd();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) {
+        StringJoiner joiner = new StringJoiner("\n");
+        for (Job job : engine.getJobs()) {
+            joiner.add("[" + job.id + "] " + job.getState() + " " + job.line);
+        }
+        if (joiner.length() != 0) {
+            engine.println(joiner.toString());
+        }
+    }
+}
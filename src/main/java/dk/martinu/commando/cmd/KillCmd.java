@@ -0,0 +1,56 @@
+package dk.martinu.commando.cmd;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+@Cmd(aliases = "kill", args = ArgsInfo.REQUIRED)
+public class KillCmd implements StaticCommand {
+
+    private static volatile KillCmd instance = null;
+
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public static CommandInfo getInfo() {
+        return KillCmdDescriptor.create();
+    }
+
+    @NotNull
+    public static KillCmd getInstance() {
+        if (instance == null) {
+            synchronized (KillCmd.class) {
+                if (instance == null) {
+                    instance = new KillCmd();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @NotNull
+    static Job getJob(@NotNull AbstractCliEngine engine, @NotNull String args) throws CommandException {
+        int id;
+        try {
+            id = Integer.parseInt(args.trim());
+        }
+        catch (NumberFormatException e) {
+            throw new CommandException("invalid job id {" + args + "}");
+        }
+        Job job = engine.getJob(id);
+        if (job == null) {
+            throw new CommandException("job " + id + " not found");
+        }
+        return job;
+    }
+
+    @Override
+    public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) throws CommandException {
+        if (parameters.args.isEmpty()) {
+            throw new CommandException("no job specified");
+        }
+        Job job = getJob(engine, parameters.args);
+        if (!job.cancel()) {
+            throw new CommandException("job " + job.id + " has already completed");
+        }
+    }
+}
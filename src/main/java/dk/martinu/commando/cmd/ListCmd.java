@@ -5,21 +5,24 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.stream.Stream;
 
+@Cmd(aliases = {"list", "l"},
+        options = {@Cmd.Opt(name = "page", type = Option.Type.INT, required = true),
+                @Cmd.Opt(name = "size", type = Option.Type.INT, required = true)},
+        args = ArgsInfo.OPTIONAL)
 public class ListCmd implements StaticCommand {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    // number of aliases at which they are matched in parallel
+    private static final int PARALLEL_THRESHOLD = 4096;
+
     private static volatile ListCmd instance = null;
 
     @Contract(value = "-> new", pure = true)
     @NotNull
     public static CommandInfo getInfo() {
-        // TODO add optionInfo
-        return new CommandInfo.Builder()
-                .setCls(ListCmd.class)
-                .setAliases("list", "l")
-                .setArgsInfo(ArgsInfo.OPTIONAL)
-                .get();
+        return ListCmdDescriptor.create();
     }
 
     @NotNull
@@ -36,16 +39,69 @@ public class ListCmd implements StaticCommand {
 
     @Override
     public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) throws CommandException {
-        List<CommandEntry> entries = engine.getCommandEntries();
+        List<String> aliases = engine.getCommandAliases();
+        Glob glob = null;
         if (!parameters.args.isEmpty()) {
-            entries = entries.stream()
-                    .filter(entry -> Util.wildcardMatch(parameters.args, entry.alias()))
-                    .toList();
+            try {
+                glob = Glob.compile(parameters.args);
+            }
+            catch (IllegalArgumentException e) {
+                throw new CommandException("invalid pattern: " + e.getMessage());
+            }
         }
-        StringJoiner joiner = new StringJoiner("\n");
-        for (CommandEntry entry : entries) {
-            joiner.add(entry.alias());
+
+        // page through the sorted aliases if requested, even with the default values
+        boolean paged = !parameters.options.isEmpty();
+        int page = 0;
+        int size = DEFAULT_PAGE_SIZE;
+        for (Option option : parameters.options) {
+            if (option.name.equalsIgnoreCase("page")) {
+                page = option.getInt();
+            }
+            else {
+                size = option.getInt();
+            }
+        }
+        OutputSink out = engine.getOutput();
+        if (!paged) {
+            if (glob != null && aliases.size() >= PARALLEL_THRESHOLD) {
+                // matched in parallel; the sink belongs to this thread, so matches are written here in order
+                for (String alias : aliases.parallelStream().filter(glob::matches).toList()) {
+                    out.append(alias).append('\n');
+                }
+            }
+            else {
+                // aliases are written as they are matched
+                for (String alias : aliases) {
+                    if (glob == null || glob.matches(alias)) {
+                        out.append(alias).append('\n');
+                    }
+                }
+            }
+        }
+        else {
+            if (glob != null) {
+                // the number of pages depends on the number of matches
+                Stream<String> stream = aliases.size() >= PARALLEL_THRESHOLD ? aliases.parallelStream()
+                        : aliases.stream();
+                aliases = stream.filter(glob::matches).toList();
+            }
+            if (page < 1) {
+                page = 1;
+            }
+            if (size < 1) {
+                throw new CommandException("page size must be positive {" + size + "}");
+            }
+            int pages = Math.max(1, (aliases.size() + size - 1) / size);
+            if (page > pages) {
+                throw new CommandException("page " + page + " does not exist; the last page is " + pages);
+            }
+            int from = (page - 1) * size;
+            for (String alias : aliases.subList(from, Math.min(aliases.size(), from + size))) {
+                out.append(alias).append('\n');
+            }
+            out.append("page ").append(Integer.toString(page)).append(" of ").append(Integer.toString(pages))
+                    .append('\n');
         }
-        engine.println(joiner.toString());
     }
 }
@@ -0,0 +1,82 @@
+package dk.martinu.commando.cmd;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Formatter;
+
+@Cmd(aliases = "stats",
+        options = {@Cmd.Opt(name = "on"), @Cmd.Opt(name = "off"), @Cmd.Opt(name = "reset")},
+        args = ArgsInfo.OPTIONAL)
+public class StatsCmd implements StaticCommand {
+
+    private static volatile StatsCmd instance = null;
+
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public static CommandInfo getInfo() {
+        return StatsCmdDescriptor.create();
+    }
+
+    @NotNull
+    public static StatsCmd getInstance() {
+        if (instance == null) {
+            synchronized (StatsCmd.class) {
+                if (instance == null) {
+                    instance = new StatsCmd();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) throws CommandException {
+        CommandStats stats = engine.getStats();
+        if (!parameters.options.isEmpty()) {
+            for (Option option : parameters.options) {
+                if (option.name.equalsIgnoreCase("on")) {
+                    stats.setEnabled(true);
+                }
+                else if (option.name.equalsIgnoreCase("off")) {
+                    stats.setEnabled(false);
+                }
+                else {
+                    stats.reset();
+                }
+            }
+            return;
+        }
+        if (!stats.isEnabled() && stats.getRecorders().isEmpty()) {
+            engine.println("statistics are disabled; enable them with stats -on");
+            return;
+        }
+
+        CommandInfo filter = null;
+        if (!parameters.args.isEmpty()) {
+            filter = engine.getCommand(parameters.args);
+            if (filter == null) {
+                throw new CommandException("command \"" + parameters.args + "\" not found");
+            }
+        }
+
+        // latencies are printed in microseconds
+        Formatter formatter = new Formatter(new StringBuilder(256));
+        formatter.format("%-12s %-11s %9s %10s %10s %10s %10s", "command", "phase", "count", "p50", "p90", "p99", "max");
+        for (CommandStats.Recorder recorder : stats.getRecorders()) {
+            if (filter != null && !filter.equals(recorder.commandInfo)) {
+                continue;
+            }
+            formatter.format("%n%-12s %-11s %9d", recorder.commandInfo.getName(), "calls", recorder.getCalls());
+            formatter.format("%n%-12s %-11s %9d", "", "errors", recorder.getErrors());
+            for (CommandStats.Phase phase : CommandStats.Phase.values()) {
+                CommandStats.Histogram histogram = recorder.getHistogram(phase);
+                formatter.format("%n%-12s %-11s %9d %10.1f %10.1f %10.1f %10.1f", "", phase, histogram.getCount(),
+                        histogram.getPercentile(50.0) / 1e3, histogram.getPercentile(90.0) / 1e3,
+                        histogram.getPercentile(99.0) / 1e3, histogram.getMax() / 1e3);
+            }
+        }
+        engine.println(formatter.toString());
+    }
+}
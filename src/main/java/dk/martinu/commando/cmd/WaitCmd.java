@@ -0,0 +1,57 @@
+package dk.martinu.commando.cmd;
+
+import dk.martinu.commando.*;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+@Cmd(aliases = "wait", args = ArgsInfo.OPTIONAL)
+public class WaitCmd implements StaticCommand {
+
+    private static volatile WaitCmd instance = null;
+
+    @Contract(value = "-> new", pure = true)
+    @NotNull
+    public static CommandInfo getInfo() {
+        return WaitCmdDescriptor.create();
+    }
+
+    @NotNull
+    public static WaitCmd getInstance() {
+        if (instance == null) {
+            synchronized (WaitCmd.class) {
+                if (instance == null) {
+                    instance = new WaitCmd();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(@NotNull AbstractCliEngine engine, @NotNull Parameters parameters) throws CommandException {
+        // a job that waits for itself never completes
+        Job self = engine.getCurrentJob();
+        CompletableFuture<?> future;
+        if (parameters.args.isEmpty()) {
+            future = CompletableFuture.allOf(engine.getJobs().stream()
+                    .filter(job -> job != self)
+                    .map(Job::getFuture)
+                    .toArray(CompletableFuture[]::new));
+        }
+        else {
+            Job job = KillCmd.getJob(engine, parameters.args);
+            if (job == self) {
+                throw new CommandException("job " + job.id + " cannot wait for itself");
+            }
+            future = job.getFuture();
+        }
+        try {
+            future.join();
+        }
+        catch (RuntimeException ignore) {
+            // failures are reported by the engine when the job completes
+        }
+    }
+}
@@ -4,4 +4,6 @@ module dk.martinu.commando {
 
     exports dk.martinu.commando;
     exports dk.martinu.commando.cmd;
+
+    uses dk.martinu.commando.CommandProvider;
 }
\ No newline at end of file
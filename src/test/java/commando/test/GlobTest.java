@@ -0,0 +1,67 @@
+package commando.test;
+
+import dk.martinu.commando.Glob;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Glob")
+public class GlobTest {
+
+    @DisplayName("compiled globs are cached")
+    @Test
+    public void cached() {
+        assertSame(Glob.compile("l*"), Glob.compile("l*"));
+    }
+
+    @DisplayName("fails with malformed patterns")
+    @ParameterizedTest
+    @ValueSource(strings = {"[abc", "a\\", "[z-a]"})
+    public void failsWithMalformedPattern(String pattern) {
+        assertThrows(IllegalArgumentException.class, () -> Glob.compile(pattern));
+    }
+
+    @DisplayName("can match")
+    @ParameterizedTest
+    @CsvSource({
+            "list, list",
+            "list, LIST",
+            "LIST, list",
+            "l*, list",
+            "*t, list",
+            "*, list",
+            "**, ''",
+            "l?st, list",
+            "l*s*t, list",
+            "[kl]ist, list",
+            "[a-m]ist, List",
+            "[!a-k]ist, list",
+            "[^a-k]ist, list",
+            "a\\*, a*",
+            "[]]x, ]x"
+    })
+    public void matches(String pattern, String seq) {
+        assertTrue(Glob.compile(pattern).matches(seq));
+    }
+
+    @DisplayName("can not match")
+    @ParameterizedTest
+    @CsvSource({
+            "list, lis",
+            "list, lists",
+            "lst, list",
+            "l*x, list",
+            "?, ''",
+            "l?st, lst",
+            "[a-k]ist, list",
+            "[!kl]ist, list",
+            "a\\*, ab"
+    })
+    public void doesNotMatch(String pattern, String seq) {
+        assertFalse(Glob.compile(pattern).matches(seq));
+    }
+}
@@ -0,0 +1,39 @@
+package commando.test;
+
+import dk.martinu.commando.History;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("History")
+public class HistoryTest {
+
+    @DisplayName("drops the oldest lines when full")
+    @Test
+    public void dropsOldest() {
+        History history = new History(3);
+        for (int i = 1; i <= 5; i++) {
+            history.add("line " + i);
+        }
+        assertEquals(3, history.size());
+        assertNull(history.get(2));
+        assertEquals("line 3", history.get(3));
+        assertEquals(List.of(new History.Entry(4, "line 4"), new History.Entry(5, "line 5")), history.getLast(2));
+    }
+
+    @DisplayName("can search for substrings ignoring case")
+    @Test
+    public void search() {
+        History history = new History(100);
+        for (int i = 0; i < 250; i++) {
+            history.add("cmd" + i + " Arg");
+        }
+        assertEquals(List.of(new History.Entry(243, "cmd242 Arg")), history.search("D242 a", 10));
+        assertEquals(List.of(new History.Entry(250, "cmd249 Arg")), history.search("arg", 1));
+        assertEquals(50, history.search("cmd2", 100).size());
+        assertTrue(history.search("cmd42 ", 10).isEmpty());
+    }
+}
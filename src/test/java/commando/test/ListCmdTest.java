@@ -0,0 +1,38 @@
+package commando.test;
+
+import dk.martinu.commando.AbstractCliEngine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ListCmd")
+public class ListCmdTest {
+
+    private static String run(String input) {
+        StringWriter writer = new StringWriter();
+        PrintWriter out = new PrintWriter(writer);
+        new AbstractCliEngine(new Scanner(input), true) {
+            @Override
+            protected void freeResources() { }
+
+            @Override
+            protected PrintWriter out() {
+                return out;
+            }
+        }.run();
+        return writer.toString();
+    }
+
+    @DisplayName("pages when the default page or size is given")
+    @Test
+    public void defaultValues() {
+        assertFalse(run("list\n").contains("page 1 of "));
+        assertTrue(run("list -size:20\n").contains("page 1 of "));
+        assertTrue(run("list -page:0\n").contains("page 1 of "));
+    }
+}
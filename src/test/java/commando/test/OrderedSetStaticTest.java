@@ -6,6 +6,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,7 +25,10 @@ public class OrderedSetStaticTest {
                 Arguments.of((Object) new Integer[] {1}),
                 Arguments.of((Object) new Integer[] {1, 2}),
                 Arguments.of((Object) new Integer[] {1, 2, 3}),
-                Arguments.of((Object) new Integer[] {1, 2, 3, 4})
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4}),
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4, 5, 6, 7, 8, 9}),
+                Arguments.of((Object) new Integer[] {16, 32, 48, 64, 80, 96, 112, 128, 144, 160, 176, 192, 208, 224, 240, 256, 17}),
+                Arguments.of((Object) IntStream.range(0, 1000).boxed().toArray(Integer[]::new))
         );
     }
 
@@ -42,7 +46,10 @@ public class OrderedSetStaticTest {
                 Arguments.of((Object) new Integer[] {1, 2, 3, 1}),
                 Arguments.of((Object) new Integer[] {1, 2, 3, 3}),
                 Arguments.of((Object) new Integer[] {1, 2, 3, 3, 4}),
-                Arguments.of((Object) new Integer[] {1, 1, 1, 1, 1})
+                Arguments.of((Object) new Integer[] {1, 1, 1, 1, 1}),
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 1}),
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 16}),
+                Arguments.of((Object) new Integer[] {16, 32, 48, 64, 80, 96, 112, 128, 144, 160, 32})
         );
     }
 
@@ -59,7 +66,9 @@ public class OrderedSetStaticTest {
                 Arguments.of((Object) new Integer[] {1, null}),
                 Arguments.of((Object) new Integer[] {1, 2, null}),
                 Arguments.of((Object) new Integer[] {1, null, 3}),
-                Arguments.of((Object) new Integer[] {null, 2, 3})
+                Arguments.of((Object) new Integer[] {null, 2, 3}),
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4, 5, 6, 7, 8, 9, null}),
+                Arguments.of((Object) new Integer[] {null, 2, 3, 4, 5, 6, 7, 8, 9, 10})
         );
     }
 
@@ -8,7 +8,9 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,7 +28,10 @@ public class OrderedSetTest {
                 Arguments.of((Object) new Integer[] {1}),
                 Arguments.of((Object) new Integer[] {1, 2}),
                 Arguments.of((Object) new Integer[] {1, 2, 3}),
-                Arguments.of((Object) new Integer[] {1, 2, 3, 4})
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4}),
+                Arguments.of((Object) new Integer[] {1, 2, 3, 4, 5, 6, 7, 8, 9}),
+                Arguments.of((Object) new Integer[] {16, 32, 48, 64, 80, 96, 112, 128, 144, 160, 176, 192, 208, 224, 240, 256, 17}),
+                Arguments.of((Object) IntStream.range(0, 1000).boxed().toArray(Integer[]::new))
         );
     }
 
@@ -57,6 +62,15 @@ public class OrderedSetTest {
         set.forEach(val -> assertEquals(source[index.getAndIncrement()], val));
     }
 
+    @DisplayName("hash code is the sum of element hash codes")
+    @ParameterizedTest
+    @MethodSource("distinctIntsProvider")
+    public void hashCodeOfElements(Integer[] source) {
+        OrderedSet<Integer> set = OrderedSet.of(source);
+        assertEquals(Set.of(source).hashCode(), set.hashCode());
+        assertEquals(OrderedSet.of(source).hashCode(), set.hashCode());
+    }
+
     @DisplayName("set has same order as source array")
     @ParameterizedTest
     @MethodSource("distinctIntsProvider")
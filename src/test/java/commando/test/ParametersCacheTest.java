@@ -0,0 +1,53 @@
+package commando.test;
+
+import dk.martinu.commando.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ParametersCache")
+public class ParametersCacheTest {
+
+    private static CommandInfo newCommandInfo(Option.Type type) {
+        return new CommandInfo(NoopCommand.class, new String[] {"noop"},
+                new OptionInfo[] {new OptionInfo("n", type, true)}, ArgsInfo.OPTIONAL);
+    }
+
+    @DisplayName("evicts the least recently used parameters")
+    @Test
+    public void evictsLeastRecentlyUsed() throws OptionException {
+        CommandInfo info = newCommandInfo(Option.Type.INT);
+        ParametersCache cache = new ParametersCache(2);
+        Parameters a = Parameters.from("a");
+        cache.put(info, "a", a);
+        cache.put(info, "b", Parameters.from("b"));
+        assertSame(a, cache.get(info, "a"));
+        cache.put(info, "c", Parameters.from("c"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get(info, "b"));
+        assertSame(a, cache.get(info, "a"));
+    }
+
+    @DisplayName("cached options are not resolved again")
+    @Test
+    public void sharedOptions() throws CommandException, OptionException {
+        CommandInfo info = newCommandInfo(Option.Type.INT);
+        Parameters parameters = Parameters.from("-n:5");
+        info.resolveOptions(parameters.options);
+        new ParametersCache().put(info, "-n:5", parameters);
+
+        Option option = parameters.options.get(0);
+        info.resolveOptions(parameters.options);
+        assertEquals(5, option.getInt());
+        assertEquals(5, option.getResolvedValue());
+        assertThrows(IllegalStateException.class, () -> newCommandInfo(Option.Type.LONG)
+                .resolveOptions(parameters.options));
+    }
+
+    public static class NoopCommand implements Command {
+
+        @Override
+        public void execute(AbstractCliEngine engine, Parameters parameters) { }
+    }
+}
@@ -0,0 +1,59 @@
+package commando.test;
+
+import dk.martinu.commando.OptionException;
+import dk.martinu.commando.Parameters;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Parameters")
+public class ParametersTest {
+
+    @DisplayName("arguments without options are not copied")
+    @Test
+    public void argsOnly() throws OptionException {
+        String args = "some arguments";
+        Parameters parameters = Parameters.from(args);
+        assertTrue(parameters.options.isEmpty());
+        assertSame(args, parameters.args);
+    }
+
+    @DisplayName("can parse options with and without values")
+    @Test
+    public void options() throws OptionException {
+        Parameters parameters = Parameters.from("-a -b:1 -c:\"x \\\" y\" rest of line");
+        assertEquals(3, parameters.options.size());
+
+        assertEquals("a", parameters.options.get(0).name);
+        assertNull(parameters.options.get(0).getValue());
+
+        assertEquals("b", parameters.options.get(1).name);
+        assertEquals("1", parameters.options.get(1).getValue());
+
+        assertEquals("c", parameters.options.get(2).name);
+        assertEquals("x \\\" y", parameters.options.get(2).getValue());
+
+        assertEquals("rest of line", parameters.args);
+    }
+
+    @DisplayName("can parse a range of a character sequence")
+    @Test
+    public void range() throws OptionException {
+        String line = "cmd -a:1 args";
+        Parameters parameters = Parameters.from(line, 4, line.length());
+        assertEquals(1, parameters.options.size());
+        assertEquals("a", parameters.options.get(0).name);
+        assertEquals("1", parameters.options.get(0).getValue());
+        assertEquals("args", parameters.args);
+    }
+
+    @DisplayName("parsing fails with malformed options")
+    @ParameterizedTest
+    @ValueSource(strings = {"-", "-a!", "-a:", "-a: b", "-a:\"b", "-a:\"b\\\""})
+    public void failsWithMalformedOption(String args) {
+        assertThrows(OptionException.class, () -> Parameters.from(args));
+    }
+}
@@ -0,0 +1,37 @@
+package commando.test;
+
+import dk.martinu.commando.Util;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Util")
+public class UtilTest {
+
+    @DisplayName("strings without escape sequences are not copied")
+    @Test
+    public void unescapePlain() {
+        String s = "no escape sequences";
+        assertSame(s, Util.unescape(s));
+    }
+
+    @DisplayName("can unescape")
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "a\\tb|a\tb",
+            "\\\"quoted\\\"|\"quoted\"",
+            "back\\\\slash|back\\slash",
+            "\\u00e6\\u00F8|\u00e6\u00f8",
+            "\\u00g0|u00g0",
+            "\\u00e|u00e",
+            "trailing\\|trailing"
+    })
+    public void unescape(String s, String expected) {
+        assertEquals(expected, Util.unescape(s).toString());
+        assertEquals(expected, Util.unescape(new StringBuilder(s)).toString());
+        assertArrayEquals(expected.toCharArray(), Util.unescape(s.toCharArray()));
+    }
+}